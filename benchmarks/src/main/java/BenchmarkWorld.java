@@ -0,0 +1,312 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import benchmarks.GameFixture;
+
+/**
+ * This class is the world which the JMH benchmarks measure.  See benchmarks.GameFixture.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class BenchmarkWorld implements GameFixture {
+	
+	// The area which each ship has on average, so that larger worlds are equally crowded
+	private static final int AREA_PER_SHIP = 800 * 600 / 50;
+	
+	// The size of the image which is drawn to
+	private static final int IMAGE_WIDTH = 800;
+	private static final int IMAGE_HEIGHT = 600;
+	
+	// The seed used to create the worlds, so that every run measures the same worlds
+	private static final long SEED = 124;
+	
+	// Whether the sprites have been loaded
+	private static boolean spritesLoaded = false;
+	
+	// The world, and a snapshot of the state which it was created in
+	private World world;
+	private ByteBuffer initialState;
+	
+	// The buffer which snapshots are written to
+	private ByteBuffer snapshot;
+	
+	// The parameters which the world was created with
+	private int linksPerShip;
+	private int numEffects;
+	
+	// The settings which are kept when the world is reset
+	private int parallelism = 1;
+	private boolean swept = false;
+	
+	// The Random object used to place new effects
+	private Random effectRandom = new Random(SEED);
+	
+	// The image which is drawn to
+	private BufferedImage image = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_INT_RGB);
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#create(int, int, int)
+	 */
+	@Override
+	public void create(int numShips, int linksPerShip, int numEffects) {
+		loadSprites();
+		
+		this.linksPerShip = linksPerShip;
+		this.numEffects = numEffects;
+		
+		// Make the world large enough that the ships are as crowded as in a normal game
+		int size = (int) Math.sqrt((double) Math.max(numShips, 1) * AREA_PER_SHIP);
+		size = Math.max(size, IMAGE_WIDTH);
+		
+		Random random = new Random(SEED);
+		World created = new World(Double.MAX_VALUE, Double.MAX_VALUE, 0, size, size, random);
+		
+		for (int i = 0; i < numShips; i++) {
+			created.createShip(random.nextInt(size), random.nextInt(size), 
+					random.nextInt(4), random.nextInt(2));
+		}
+		
+		// Link each ship to the ships after it
+		for (int i = 0; i < numShips; i++) {
+			for (int j = i + 1; j <= i + linksPerShip && j < numShips; j++)
+				created.getShip(i).link(created.getShip(j));
+		}
+		
+		addEffects(created, numEffects);
+		
+		initialState = ByteBuffer.allocate(Snapshot.getSize(created));
+		Snapshot.write(created, initialState);
+		initialState.flip();
+		snapshot = ByteBuffer.allocate(initialState.capacity());
+		
+		setWorld(created);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#reset()
+	 */
+	@Override
+	public void reset() {
+		setWorld(readInitialState());
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#close()
+	 */
+	@Override
+	public void close() {
+		world.setParallelism(1);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#setParallelism(int)
+	 */
+	@Override
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+		world.setParallelism(parallelism);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#setSweptCollisions(boolean)
+	 */
+	@Override
+	public void setSweptCollisions(boolean swept) {
+		this.swept = swept;
+		world.setSweptCollisions(swept);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#getWidth()
+	 */
+	@Override
+	public int getWidth() {
+		return world.getWidth();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#getHeight()
+	 */
+	@Override
+	public int getHeight() {
+		return world.getHeight();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#step()
+	 */
+	@Override
+	public int step() {
+		world.step();
+		return world.getNumLinks();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#collide()
+	 */
+	@Override
+	public int collide() {
+		int colliding = 0;
+		for (int i = 1; i < world.getNumShips(); i++) {
+			if (Ship.areColliding(world.getShip(i - 1), world.getShip(i)))
+				colliding++;
+		}
+		return colliding;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#linkAndUnlink()
+	 */
+	@Override
+	public int linkAndUnlink() {
+		// Each ship is only linked to the ships up to linksPerShip slots after it, so the next ship after those is never linked
+		int gap = linksPerShip + 1;
+		int linked = 0;
+		for (int i = gap; i < world.getNumShips(); i++) {
+			if (world.getShip(i - gap).link(world.getShip(i)))
+				linked++;
+		}
+		for (int i = gap; i < world.getNumShips(); i++)
+			world.getShip(i - gap).unlink(world.getShip(i));
+		return linked;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#hitTest(int, int)
+	 */
+	@Override
+	public int hitTest(int x, int y) {
+		Ship ship = world.findShipAt(x, y);
+		return ship == null ? -1 : ship.getId();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#writeSnapshot()
+	 */
+	@Override
+	public int writeSnapshot() {
+		snapshot.clear();
+		Snapshot.write(world, snapshot);
+		return snapshot.position();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#readSnapshot()
+	 */
+	@Override
+	public int readSnapshot() {
+		return readInitialState().getNumShips();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#refillEffects()
+	 */
+	@Override
+	public void refillEffects() {
+		addEffects(world, numEffects - world.getEffectManager().getNumEffects());
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#tickEffects()
+	 */
+	@Override
+	public int tickEffects() {
+		EffectManager effectManager = world.getEffectManager();
+		effectManager.tick(World.DEFAULT_TIMESTEP);
+		return effectManager.getNumEffects();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see benchmarks.GameFixture#paint(boolean)
+	 */
+	@Override
+	public int paint(boolean culled) {
+		Graphics2D g = image.createGraphics();
+		g.drawImage(SpriteManager.getSprite(SpriteManager.NEXUS_BG), 0, 0, null);
+		if (culled)
+			world.paint(g, 1, 0, 0, IMAGE_WIDTH, IMAGE_HEIGHT);
+		else
+			world.paint(g, 1);
+		g.dispose();
+		
+		return image.getRGB(IMAGE_WIDTH / 2, IMAGE_HEIGHT / 2);
+	}
+	
+	/**
+	 * Replaces the world, stopping the threads of the old one and applying the settings to the new one
+	 * @param newWorld The new world
+	 */
+	private void setWorld(World newWorld) {
+		if (world != null)
+			world.setParallelism(1);
+		
+		world = newWorld;
+		world.setParallelism(parallelism);
+		world.setSweptCollisions(swept);
+	}
+	
+	/**
+	 * @return A new world read from the snapshot of the state which create() made
+	 */
+	private World readInitialState() {
+		try {
+			return Snapshot.read(initialState.duplicate());
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Adds explosions and points displays at random points within the image which is drawn to
+	 * @param world The world to add the effects to
+	 * @param count The number of effects to add
+	 */
+	private void addEffects(World world, int count) {
+		for (int i = 0; i < count; i++) {
+			if (i % 2 == 0) {
+				world.getEffectManager().createExplosion(effectRandom.nextInt(IMAGE_WIDTH), effectRandom.nextInt(IMAGE_HEIGHT));
+			} else {
+				world.getEffectManager().createPointsDisplay(effectRandom.nextInt(IMAGE_WIDTH), effectRandom.nextInt(IMAGE_HEIGHT), 
+						50 * (1 + effectRandom.nextInt(6)), Color.CYAN);
+			}
+		}
+	}
+	
+	/**
+	 * Loads the sprites, the first time that a world is created
+	 */
+	private static synchronized void loadSprites() {
+		if (spritesLoaded)
+			return;
+		
+		try {
+			SpriteManager.init();
+			SpriteManager.awaitLoaded();
+		} catch (IOException e) {
+			throw new IllegalStateException("Run the benchmarks from the folder containing the 'assets' folder", e);
+		}
+		spritesLoaded = true;
+	}
+	
+}
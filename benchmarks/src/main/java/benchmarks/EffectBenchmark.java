@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * This class measures animating the effects for one step.
+ * The effects which finish are replaced before every step, so the number of effects stays the same.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class EffectBenchmark {
+	
+	// The number of effects in the world
+	@Param({"0", "100", "1000"})
+	public int effects;
+	
+	// The world
+	private GameFixture fixture;
+	
+	/**
+	 * Creates the world
+	 */
+	@Setup(Level.Trial)
+	public void create() {
+		fixture = Fixtures.create();
+		fixture.create(0, 0, effects);
+	}
+	
+	/**
+	 * Replaces the effects which finished in the last step
+	 */
+	@Setup(Level.Invocation)
+	public void refill() {
+		fixture.refillEffects();
+	}
+	
+	/**
+	 * @param blackhole Consumes the number of effects left after the step
+	 */
+	@Benchmark
+	public void tick(Blackhole blackhole) {
+		blackhole.consume(fixture.tickEffects());
+	}
+	
+}
@@ -0,0 +1,26 @@
+package benchmarks;
+
+/**
+ * This class creates the GameFixture which the benchmarks use
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class Fixtures {
+	
+	// The class in the default package which implements GameFixture
+	private static final String FIXTURE_CLASS = "BenchmarkWorld";
+	
+	/**
+	 * Creates a new GameFixture.  The class is found by name, as it is in the default package.
+	 * @return The fixture
+	 */
+	public static GameFixture create() {
+		try {
+			return (GameFixture) Class.forName(FIXTURE_CLASS).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Can't create " + FIXTURE_CLASS, e);
+		}
+	}
+	
+}
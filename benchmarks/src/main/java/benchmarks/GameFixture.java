@@ -0,0 +1,112 @@
+package benchmarks;
+
+/**
+ * This interface is a world which the benchmarks measure operations on.
+ * The game's classes are in the default package, which classes in a package can't refer to, 
+ * but JMH only runs benchmarks which are in a package.  So the benchmarks use the game through this interface, 
+ * which is implemented by BenchmarkWorld in the default package.
+ * 
+ * Every world is created from the same seed, so every run measures the same worlds.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public interface GameFixture {
+	
+	/**
+	 * Creates the world, and remembers its state so that it can be reset to it
+	 * @param numShips The number of ships in the world
+	 * @param linksPerShip The number of links which each ship has with the ships after it
+	 * @param numEffects The number of effects in the world
+	 */
+	public void create(int numShips, int linksPerShip, int numEffects);
+	
+	/**
+	 * Puts the world back into the state which create() made, keeping its parallelism and swept collisions
+	 */
+	public void reset();
+	
+	/**
+	 * Stops any threads which the world uses
+	 */
+	public void close();
+	
+	/**
+	 * @param parallelism The number of threads to simulate the world on
+	 */
+	public void setParallelism(int parallelism);
+	
+	/**
+	 * @param swept Whether or not to simulate the world with swept collisions
+	 */
+	public void setSweptCollisions(boolean swept);
+	
+	/**
+	 * @return The width of the world
+	 */
+	public int getWidth();
+	
+	/**
+	 * @return The height of the world
+	 */
+	public int getHeight();
+	
+	/**
+	 * Steps the world once
+	 * @return The number of links after the step
+	 */
+	public int step();
+	
+	/**
+	 * Tests each ship for a collision with the ship in the next slot
+	 * @return The number of pairs which are colliding
+	 */
+	public int collide();
+	
+	/**
+	 * Links each ship to a ship which it isn't linked to, and then removes those links again, 
+	 * so that the world is left as it was
+	 * @return The number of links which were made
+	 */
+	public int linkAndUnlink();
+	
+	/**
+	 * Finds the ship at a point
+	 * @param x The X coordinate of the point
+	 * @param y The Y coordinate of the point
+	 * @return The id of the ship, or -1 if there is no ship there
+	 */
+	public int hitTest(int x, int y);
+	
+	/**
+	 * Writes a snapshot of the world into a buffer which is reused by each call
+	 * @return The number of bytes written
+	 */
+	public int writeSnapshot();
+	
+	/**
+	 * Creates a new world from the snapshot of the state which create() made
+	 * @return The number of ships in the new world
+	 */
+	public int readSnapshot();
+	
+	/**
+	 * Adds effects until there are as many as create() was given, replacing the effects which have finished
+	 */
+	public void refillEffects();
+	
+	/**
+	 * Animates the effects for one step
+	 * @return The number of effects left
+	 */
+	public int tickEffects();
+	
+	/**
+	 * Draws the background and the world into an offscreen image
+	 * @param culled Whether to only draw what is inside the image, as the game does through its camera,
+	 * rather than everything in the world
+	 * @return The color of the pixel in the center of the image
+	 */
+	public int paint(boolean culled);
+	
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * This class measures drawing the world into an offscreen image, so that it can be run without a display.
+ * 'paint' draws the whole world, and 'paintview' only draws the part of it inside the image, as the game's camera does.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+	
+	// The number of ships in the world
+	@Param({"0", "10", "100", "1000", "10000"})
+	public int ships;
+	
+	// The number of links which each ship has with the ships after it
+	@Param({"0", "2", "5"})
+	public int links;
+	
+	// The number of effects in the world
+	@Param({"0", "100", "1000"})
+	public int effects;
+	
+	// The world
+	private GameFixture fixture;
+	
+	/**
+	 * Creates the world.  Drawing doesn't change it, so it is only created once.
+	 */
+	@Setup(Level.Trial)
+	public void create() {
+		fixture = Fixtures.create();
+		fixture.create(ships, links, effects);
+	}
+	
+	/**
+	 * @param blackhole Consumes the color of the center of the image
+	 */
+	@Benchmark
+	public void paint(Blackhole blackhole) {
+		blackhole.consume(fixture.paint(false));
+	}
+	
+	/**
+	 * @param blackhole Consumes the color of the center of the image
+	 */
+	@Benchmark
+	public void paintview(Blackhole blackhole) {
+		blackhole.consume(fixture.paint(true));
+	}
+	
+}
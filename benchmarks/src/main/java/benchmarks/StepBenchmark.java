@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * This class measures a step of the world.  The world is reset before every step, 
+ * so every step is measured on the world which the parameters describe, rather than one which has been running for a while.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class StepBenchmark {
+	
+	// The number of threads which the 'parallel' mode simulates on
+	private static final int PARALLELISM = Math.max(2, Runtime.getRuntime().availableProcessors());
+	
+	// The number of ships in the world
+	@Param({"10", "100", "1000", "10000"})
+	public int ships;
+	
+	// The number of links which each ship has with the ships after it
+	@Param({"0", "2", "5"})
+	public int links;
+	
+	// How the world is simulated: 'serial', 'parallel' or 'swept'
+	@Param({"serial", "parallel", "swept"})
+	public String mode;
+	
+	// The world
+	private GameFixture fixture;
+	
+	/**
+	 * Creates the world
+	 */
+	@Setup(Level.Trial)
+	public void create() {
+		fixture = Fixtures.create();
+		fixture.create(ships, links, 0);
+		
+		if (mode.equals("parallel"))
+			fixture.setParallelism(PARALLELISM);
+		else if (mode.equals("swept"))
+			fixture.setSweptCollisions(true);
+		else if (!mode.equals("serial"))
+			throw new IllegalArgumentException("Unknown mode: " + mode);
+	}
+	
+	/**
+	 * Puts the world back into the state which it was created in
+	 */
+	@Setup(Level.Invocation)
+	public void reset() {
+		fixture.reset();
+	}
+	
+	/**
+	 * Stops the world's threads
+	 */
+	@TearDown(Level.Trial)
+	public void close() {
+		fixture.close();
+	}
+	
+	/**
+	 * @param blackhole Consumes the number of links after the step, so that the step can't be optimized away
+	 */
+	@Benchmark
+	public void step(Blackhole blackhole) {
+		blackhole.consume(fixture.step());
+	}
+	
+}
@@ -0,0 +1,103 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * This class measures the operations which don't change the world: testing collisions, linking and unlinking ships 
+ * (which leaves the world as it was), finding the ship at a point, and writing and reading snapshots.
+ * The world is created once for each set of parameters.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class WorldBenchmark {
+	
+	// The seed of the points which are hit tested
+	private static final long SEED = 124;
+	
+	// The number of ships in the world
+	@Param({"10", "100", "1000", "10000"})
+	public int ships;
+	
+	// The number of links which each ship has with the ships after it
+	@Param({"0", "2", "5"})
+	public int links;
+	
+	// The world
+	private GameFixture fixture;
+	
+	// The Random object which chooses the points to hit test
+	private Random random;
+	
+	/**
+	 * Creates the world
+	 */
+	@Setup(Level.Trial)
+	public void create() {
+		fixture = Fixtures.create();
+		fixture.create(ships, links, 0);
+		random = new Random(SEED);
+	}
+	
+	/**
+	 * @param blackhole Consumes the number of neighbouring ships which are colliding
+	 */
+	@Benchmark
+	public void collide(Blackhole blackhole) {
+		blackhole.consume(fixture.collide());
+	}
+	
+	/**
+	 * @param blackhole Consumes the number of links which were made and removed again
+	 */
+	@Benchmark
+	public void link(Blackhole blackhole) {
+		blackhole.consume(fixture.linkAndUnlink());
+	}
+	
+	/**
+	 * @param blackhole Consumes the ship which was found
+	 */
+	@Benchmark
+	public void hittest(Blackhole blackhole) {
+		blackhole.consume(fixture.hitTest(random.nextInt(fixture.getWidth()), random.nextInt(fixture.getHeight())));
+	}
+	
+	/**
+	 * @param blackhole Consumes the number of bytes in the snapshot
+	 */
+	@Benchmark
+	public void snapshot(Blackhole blackhole) {
+		blackhole.consume(fixture.writeSnapshot());
+	}
+	
+	/**
+	 * @param blackhole Consumes the number of ships in the restored world
+	 */
+	@Benchmark
+	public void restore(Blackhole blackhole) {
+		blackhole.consume(fixture.readSnapshot());
+	}
+	
+}
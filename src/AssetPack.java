@@ -0,0 +1,263 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * This class is a pack of assets, such as sprites, stored together in one indexed file.
+ * A pack can be memory-mapped from a file, or read from the classpath so that the game can run from a single jar.
+ * Entries are read straight out of the pack's buffer without being copied.
+ * Packs are built from the 'assets' folder by AssetPacker.
+ * 
+ * The file is: MAGIC, VERSION, the number of entries, then for each entry: the length of its name, its name in UTF-8,
+ * the position and length of its contents, and the CRC-32 of its contents.  The contents of the entries follow.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class AssetPack {
+	
+	// Identifies a file as an asset pack, and the version of the format which it was written in
+	public static final int MAGIC = 0x4E585041;
+	public static final int VERSION = 1;
+	
+	// The name of the pack on the classpath, and in the working directory
+	public static final String RESOURCE_NAME = "/assets.pack";
+	public static final String FILE_NAME = "assets.pack";
+	
+	// The order of the bytes in the header and index
+	private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+	
+	// The contents of the pack
+	private ByteBuffer contents;
+	
+	// The number of each entry, by name
+	private Map<String, Integer> index = new HashMap<String, Integer>();
+	
+	// The position, length and checksum of each entry
+	private int[] positions;
+	private int[] lengths;
+	private int[] checksums;
+	
+	/**
+	 * Reads the index of a pack
+	 * @param contents The contents of the pack
+	 * @throws IOException If the contents are not an asset pack which can be read
+	 */
+	public AssetPack(ByteBuffer contents) throws IOException {
+		this.contents = contents.order(BYTE_ORDER);
+		
+		try {
+			if (contents.getInt() != MAGIC)
+				throw new IOException("Not an asset pack");
+			
+			int version = contents.getInt();
+			if (version != VERSION)
+				throw new IOException("The asset pack was built with version " + version + ", which can't be read");
+			
+			int count = contents.getInt();
+			positions = new int[count];
+			lengths = new int[count];
+			checksums = new int[count];
+			
+			for (int i = 0; i < count; i++) {
+				byte[] name = new byte[contents.getShort() & 0xFFFF];
+				contents.get(name);
+				index.put(new String(name, StandardCharsets.UTF_8), i);
+				
+				positions[i] = contents.getInt();
+				lengths[i] = contents.getInt();
+				checksums[i] = contents.getInt();
+				
+				if (positions[i] < 0 || lengths[i] < 0 || positions[i] + lengths[i] > contents.limit())
+					throw new IOException("The asset pack is damaged");
+			}
+		} catch (RuntimeException e) {
+			// The index is truncated
+			throw new IOException("The asset pack is damaged", e);
+		}
+	}
+	
+	/**
+	 * Memory-maps a pack from a file
+	 * @param path The file
+	 * @return The pack
+	 * @throws IOException If the file can't be read, or isn't an asset pack
+	 */
+	public static AssetPack open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new AssetPack(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Opens the pack on the classpath, named RESOURCE_NAME.
+	 * If the pack is a file, it is memory-mapped.  If it is inside a jar, it is read into memory.
+	 * @return The pack, or null if there is no pack on the classpath
+	 * @throws IOException If the pack can't be read
+	 */
+	public static AssetPack openResource() throws IOException {
+		URL url = AssetPack.class.getResource(RESOURCE_NAME);
+		if (url == null)
+			return null;
+		
+		if ("file".equals(url.getProtocol())) {
+			try {
+				return open(Paths.get(url.toURI()));
+			} catch (URISyntaxException e) {
+				// Read it as a stream instead
+			}
+		}
+		
+		InputStream in = url.openStream();
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] chunk = new byte[64 * 1024];
+			int read;
+			while ((read = in.read(chunk)) != -1)
+				out.write(chunk, 0, read);
+			
+			return new AssetPack(ByteBuffer.wrap(out.toByteArray()));
+		} finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * @param name The name of an entry
+	 * @return Whether or not the pack contains the entry
+	 */
+	public boolean contains(String name) {
+		return index.containsKey(name);
+	}
+	
+	/**
+	 * Gets the contents of an entry, without copying them.  Can be called from several threads at once.
+	 * @param name The name of the entry
+	 * @return A read-only buffer containing the contents of the entry
+	 * @throws IOException If the pack doesn't contain the entry
+	 */
+	public ByteBuffer getEntry(String name) throws IOException {
+		int i = getNumber(name);
+		
+		ByteBuffer entry = contents.asReadOnlyBuffer();
+		entry.position(positions[i]);
+		entry.limit(positions[i] + lengths[i]);
+		return entry.slice();
+	}
+	
+	/**
+	 * Opens a stream which reads the contents of an entry, without copying them
+	 * @param name The name of the entry
+	 * @return The stream
+	 * @throws IOException If the pack doesn't contain the entry
+	 */
+	public InputStream openEntry(String name) throws IOException {
+		final ByteBuffer entry = getEntry(name);
+		
+		return new InputStream() {
+			@Override
+			public int read() {
+				return entry.hasRemaining() ? entry.get() & 0xFF : -1;
+			}
+			
+			@Override
+			public int read(byte[] b, int off, int len) {
+				if (!entry.hasRemaining())
+					return -1;
+				
+				len = Math.min(len, entry.remaining());
+				entry.get(b, off, len);
+				return len;
+			}
+			
+			@Override
+			public int available() {
+				return entry.remaining();
+			}
+		};
+	}
+	
+	/**
+	 * Gets a number which changes whenever the contents of an entry change
+	 * @param name The name of the entry
+	 * @return The length of the entry and its CRC-32
+	 * @throws IOException If the pack doesn't contain the entry
+	 */
+	public long getStamp(String name) throws IOException {
+		int i = getNumber(name);
+		return ((long) lengths[i] << 32) | (checksums[i] & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * @param name The name of an entry
+	 * @return The number of the entry
+	 * @throws IOException If the pack doesn't contain the entry
+	 */
+	private int getNumber(String name) throws IOException {
+		Integer i = index.get(name);
+		if (i == null)
+			throw new IOException("The asset pack doesn't contain " + name);
+		
+		return i;
+	}
+	
+	/**
+	 * Builds a pack
+	 * @param names The names of the entries
+	 * @param entries The contents of each entry
+	 * @return The contents of the pack
+	 */
+	public static ByteBuffer build(List<String> names, List<byte[]> entries) {
+		int size = 4 + 4 + 4;
+		for (int i = 0; i < names.size(); i++)
+			size += 2 + names.get(i).getBytes(StandardCharsets.UTF_8).length + 4 + 4 + 4 + entries.get(i).length;
+		
+		ByteBuffer pack = ByteBuffer.allocate(size).order(BYTE_ORDER);
+		pack.putInt(MAGIC);
+		pack.putInt(VERSION);
+		pack.putInt(names.size());
+		
+		// The entries start after the index
+		int position = size;
+		for (byte[] entry : entries)
+			position -= entry.length;
+		
+		for (int i = 0; i < names.size(); i++) {
+			byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+			byte[] entry = entries.get(i);
+			
+			CRC32 crc = new CRC32();
+			crc.update(entry);
+			
+			pack.putShort((short) name.length);
+			pack.put(name);
+			pack.putInt(position);
+			pack.putInt(entry.length);
+			pack.putInt((int) crc.getValue());
+			position += entry.length;
+		}
+		
+		for (byte[] entry : entries)
+			pack.put(entry);
+		
+		pack.flip();
+		return pack;
+	}
+	
+}
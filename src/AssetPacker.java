@@ -0,0 +1,63 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class builds an AssetPack from the images in the 'assets' folder.
+ * 
+ * Run it from the folder containing the 'assets' folder:
+ * 	java -cp src AssetPacker [assets folder] [pack]
+ * By default, the pack is written to 'assets.pack'.  Copy it into the classpath (such as 'src' or the game's jar)
+ * so that the game can be run from any folder.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class AssetPacker {
+	
+	/**
+	 * Builds the pack
+	 * @param args The folder to pack, and the file to write the pack to
+	 */
+	public static void main(String[] args) throws IOException {
+		Path folder = Paths.get(args.length > 0 ? args[0] : "assets");
+		Path output = Paths.get(args.length > 1 ? args[1] : AssetPack.FILE_NAME);
+		
+		// Pack the images, in order of their names so that the pack is the same every time
+		List<String> names = new ArrayList<String>();
+		DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*.png");
+		try {
+			for (Path file : files)
+				names.add(file.getFileName().toString());
+		} finally {
+			files.close();
+		}
+		Collections.sort(names);
+		
+		List<byte[]> entries = new ArrayList<byte[]>();
+		for (String name : names)
+			entries.add(Files.readAllBytes(folder.resolve(name)));
+		
+		ByteBuffer pack = AssetPack.build(names, entries);
+		
+		FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, 
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			while (pack.hasRemaining())
+				channel.write(pack);
+		} finally {
+			channel.close();
+		}
+		
+		System.out.println("Packed " + names.size() + " assets into " + output + " (" + Files.size(output) + " bytes)");
+	}
+	
+}
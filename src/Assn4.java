@@ -13,6 +13,9 @@ import javax.swing.UIManager;
  * Made for CISC 124, Winter 2013
  */
 public class Assn4 {
+	
+	// The time when the program started, used to report how long it took to start
+	public static final long START_TIME = System.nanoTime();
 
 	/**
 	 * The main function for the Assignment 4 game.
@@ -38,7 +41,8 @@ public class Assn4 {
 		} catch (IOException e) {
 			JOptionPane.showMessageDialog(null, 
 					"The game was unable to load its graphical assets. \n"
-					+ "Make certain that you are running it in the same folder as the 'assets' folder.",
+					+ "Make certain that you are running it in the same folder as the 'assets' folder, \n"
+					+ "or that 'assets.pack' is on the classpath.",
 					"Asset Loading Error",
 					JOptionPane.ERROR_MESSAGE);
 			System.exit(0);
@@ -47,6 +51,10 @@ public class Assn4 {
 		// Create the main menu
 		MainMenu mainMenu = new MainMenu();
 		mainMenu.setVisible(true);
+		
+		// Let the profiler be read and enabled through JMX.
+		// This is done after the menu is shown, as starting JMX takes some time.
+		Profiler.registerMBean();
 	}
 
 }
@@ -0,0 +1,185 @@
+import java.awt.Graphics2D;
+
+/**
+ * This class is the view of the world which is shown in the GamePanel.
+ * The camera can be panned and zoomed, so that a world which is larger than the panel can be explored.
+ * It converts between screen coordinates, in pixels of the panel, and world coordinates.
+ * The camera is changed on the Event Dispatch Thread and used by the game loop, so it is locked whenever it is used.
+ *
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class Camera {
+	
+	// The furthest which the camera can zoom in and out
+	private static final double MIN_ZOOM = 0.05;
+	private static final double MAX_ZOOM = 4;
+	
+	// The world coordinates of the top left corner of the view
+	private double x = 0;
+	private double y = 0;
+	
+	// The number of screen pixels for each unit of the world
+	private double zoom = 1;
+	
+	// The size of the view, in screen pixels
+	private int viewWidth = 0;
+	private int viewHeight = 0;
+	
+	// The size of the world
+	private int worldWidth = 0;
+	private int worldHeight = 0;
+	
+	/**
+	 * Changes the size of the view and of the world which it shows, keeping the view inside the world
+	 * @param viewWidth The width of the view, in screen pixels
+	 * @param viewHeight The height of the view, in screen pixels
+	 * @param worldWidth The width of the world
+	 * @param worldHeight The height of the world
+	 */
+	public synchronized void setBounds(int viewWidth, int viewHeight, int worldWidth, int worldHeight) {
+		this.viewWidth = viewWidth;
+		this.viewHeight = viewHeight;
+		this.worldWidth = worldWidth;
+		this.worldHeight = worldHeight;
+		
+		zoom = clampZoom(zoom);
+		clamp();
+	}
+	
+	/**
+	 * Moves the view so that a point in the world is in its center
+	 * @param worldX The X coordinate of the point
+	 * @param worldY The Y coordinate of the point
+	 */
+	public synchronized void centerOn(double worldX, double worldY) {
+		x = worldX - viewWidth / zoom / 2;
+		y = worldY - viewHeight / zoom / 2;
+		clamp();
+	}
+	
+	/**
+	 * Moves the view
+	 * @param dx The distance to move the contents of the view right, in screen pixels
+	 * @param dy The distance to move the contents of the view down, in screen pixels
+	 */
+	public synchronized void pan(double dx, double dy) {
+		x -= dx / zoom;
+		y -= dy / zoom;
+		clamp();
+	}
+	
+	/**
+	 * Zooms the view in or out, keeping the point under (screenX, screenY) in the same place
+	 * @param factor How much to multiply the zoom by - greater than 1 to zoom in
+	 * @param screenX The X coordinate of the point to zoom around, in screen pixels
+	 * @param screenY The Y coordinate of the point to zoom around, in screen pixels
+	 */
+	public synchronized void zoom(double factor, int screenX, int screenY) {
+		double worldX = toWorldX(screenX);
+		double worldY = toWorldY(screenY);
+		
+		zoom = clampZoom(zoom * factor);
+		
+		x = worldX - screenX / zoom;
+		y = worldY - screenY / zoom;
+		clamp();
+	}
+	
+	/**
+	 * @return The number of screen pixels for each unit of the world
+	 */
+	public synchronized double getZoom() {
+		return zoom;
+	}
+	
+	/**
+	 * @param screenX An X coordinate on the screen
+	 * @return The X coordinate in the world which is shown there
+	 */
+	public synchronized double toWorldX(int screenX) {
+		return x + screenX / zoom;
+	}
+	
+	/**
+	 * @param screenY A Y coordinate on the screen
+	 * @return The Y coordinate in the world which is shown there
+	 */
+	public synchronized double toWorldY(int screenY) {
+		return y + screenY / zoom;
+	}
+	
+	/**
+	 * @return The world X coordinate of the left side of the view
+	 */
+	public synchronized double getMinX() {
+		return x;
+	}
+	
+	/**
+	 * @return The world Y coordinate of the top of the view
+	 */
+	public synchronized double getMinY() {
+		return y;
+	}
+	
+	/**
+	 * @return The world X coordinate of the right side of the view
+	 */
+	public synchronized double getMaxX() {
+		return x + viewWidth / zoom;
+	}
+	
+	/**
+	 * @return The world Y coordinate of the bottom of the view
+	 */
+	public synchronized double getMaxY() {
+		return y + viewHeight / zoom;
+	}
+	
+	/**
+	 * Transforms a graphics context so that it draws in world coordinates
+	 * @param g The graphics context
+	 */
+	public synchronized void apply(Graphics2D g) {
+		g.scale(zoom, zoom);
+		g.translate(-x, -y);
+	}
+	
+	/**
+	 * Limits a zoom to the range which the camera can zoom to.
+	 * The camera can't zoom out further than is needed to show the whole world.
+	 * @param newZoom The zoom
+	 * @return The closest zoom which the camera can zoom to
+	 */
+	private double clampZoom(double newZoom) {
+		double minZoom = MIN_ZOOM;
+		if (worldWidth > 0 && worldHeight > 0)
+			minZoom = Math.max(minZoom, Math.min((double) viewWidth / worldWidth, (double) viewHeight / worldHeight));
+		
+		return Math.min(Math.max(newZoom, Math.min(minZoom, MAX_ZOOM)), MAX_ZOOM);
+	}
+	
+	/**
+	 * Moves the view back inside the world.  If the world is smaller than the view, it is centered in the view.
+	 */
+	private void clamp() {
+		x = clamp(x, viewWidth / zoom, worldWidth);
+		y = clamp(y, viewHeight / zoom, worldHeight);
+	}
+	
+	/**
+	 * Limits one coordinate of the view so that the view stays inside the world
+	 * @param position The coordinate of the start of the view
+	 * @param viewSize The size of the view, in world units
+	 * @param worldSize The size of the world
+	 * @return The closest coordinate which keeps the view inside the world
+	 */
+	private static double clamp(double position, double viewSize, int worldSize) {
+		if (viewSize >= worldSize)
+			return (worldSize - viewSize) / 2;
+		
+		return Math.min(Math.max(position, 0), worldSize - viewSize);
+	}
+	
+}
@@ -0,0 +1,26 @@
+import java.util.Random;
+
+/**
+ * This interface is a strategy which an automatic player uses to choose which ship to click on.
+ * Tournament plays games headlessly by asking a ClickPolicy for a ship to click whenever the player would click,
+ * and then clicking on the center of that ship.
+ *
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public interface ClickPolicy {
+	
+	/**
+	 * @return The name of the policy, as given to Tournament and written to its results
+	 */
+	public String getName();
+	
+	/**
+	 * Chooses the ship to click on next
+	 * @param world The world which is being played in
+	 * @param random The Random object to make any random choices with, so that games can be played again
+	 * @return The ship to click on, or null to not click
+	 */
+	public Ship choose(World world, Random random);
+	
+}
@@ -0,0 +1,565 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class keeps track of the clusters of linked ships in a world.  A cluster is a group of ships which are
+ * all connected to eachother by links, and every ship is in exactly one cluster, which may only contain itself.
+ * The size, damage rate and number of stationary ships of each cluster are kept up to date as ships are linked,
+ * unlinked and destroyed, so they can be read without searching the links.
+ *
+ * When two ships in different clusters are linked, the smaller cluster is merged into the larger one,
+ * so each ship is only moved O(log n) times by merges.  When a link is removed, the links are searched from
+ * both of its ships at the same time, one ship at a time from each side.  If one side runs out of ships before
+ * meeting the other, it has been split off and is moved to a new cluster, so a split only costs as much as the smaller part.
+ *
+ * Each cluster keeps its own bounding box.  Merging two clusters grows the larger one's box to hold the smaller one's.
+ * When a cluster splits or loses a ship, the box of the part which left is found from its ships, and the rest of the cluster
+ * is only found again, from its own ships, if the part which left was on the edge of its box.  After each step, the boxes of the clusters which moved are grown again from where
+ * their ships are, and clusters whose ships have all stopped moving keep their boxes from step to step.
+ *
+ * Clusters, and the lists used to search the links, are reused rather than created for every spawn and unlink.
+ *
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class ClusterIndex {
+	
+	// Every cluster, in the order they were created
+	private Set<Cluster> clusters = new LinkedHashSet<Cluster>();
+	
+	// The number of clusters of each size, and the size of the largest cluster
+	private int[] sizeCounts = new int[16];
+	private int largestSize = 0;
+	
+	// The ships which are stored in the clusters
+	private ShipStore store;
+	
+	// Clusters which have been emptied, to be reused rather than creating new ones
+	private List<Cluster> clusterPool = new ArrayList<Cluster>();
+	
+	// The ships seen by each side of the current search, in the order they were seen.
+	// Ships before the head of each side have been visited.
+	private List<Ship> sideA = new ArrayList<Ship>();
+	private List<Ship> sideB = new ArrayList<Ship>();
+	
+	// The search which each slot was last seen by.  Side A of a search marks slots with 'search', and side B with 'search + 1'.
+	private int[] seenBy = new int[0];
+	private int search = 0;
+	
+	// The ships of a cluster which is being merged into another one
+	private List<Ship> merging = new ArrayList<Ship>();
+	
+	/**
+	 * Creates a ClusterIndex
+	 * @param store The ships which are stored in the clusters
+	 */
+	public ClusterIndex(ShipStore store) {
+		this.store = store;
+	}
+	
+	/**
+	 * Adds a new ship, which has no links, in a cluster of its own
+	 * @param ship The ship
+	 */
+	public void add(Ship ship) {
+		moveShip(ship, newCluster());
+	}
+	
+	/**
+	 * Removes a ship, which must have no links
+	 * @param ship The ship
+	 */
+	public void remove(Ship ship) {
+		ship.getCluster().boundsValid = false;
+		removeShip(ship);
+		ship.setCluster(null);
+	}
+	
+	/**
+	 * Called when two ships are linked, merging their clusters
+	 * @param a The first ship
+	 * @param b The second ship
+	 */
+	public void linked(Ship a, Ship b) {
+		Cluster larger = a.getCluster();
+		Cluster smaller = b.getCluster();
+		if (larger == smaller)
+			return;
+		
+		if (larger.ships.size() < smaller.ships.size()) {
+			Cluster temp = larger;
+			larger = smaller;
+			smaller = temp;
+		}
+		
+		// The larger cluster's box only needs to grow to hold the smaller one's
+		if (larger.boundsValid && smaller.boundsValid)
+			larger.include(smaller);
+		else
+			larger.boundsValid = false;
+		larger.moving |= smaller.moving;
+		
+		// Copy the ships into a list first, as they are removed from the set while moving them
+		merging.clear();
+		for (Ship ship : smaller.ships)
+			merging.add(ship);
+		for (int i = 0; i < merging.size(); i++)
+			moveShip(merging.get(i), larger);
+		merging.clear();
+	}
+	
+	/**
+	 * Called when two ships are unlinked, splitting their cluster if they are no longer connected
+	 * @param a The first ship
+	 * @param b The second ship
+	 */
+	public void unlinked(Ship a, Ship b) {
+		separate(a, b);
+	}
+	
+	/**
+	 * Called when a ship is destroyed, after all of its links have been removed.
+	 * The ship is moved to a cluster of its own, and what is left of its cluster is split into the parts which are still connected.
+	 * @param ship The ship
+	 * @param linked The ships which the ship was linked to
+	 */
+	public void disposed(Ship ship, List<Ship> linked) {
+		Cluster old = ship.getCluster();
+		Cluster cluster = newCluster();
+		cluster.include(ship.getSlot());
+		cluster.boundsValid = true;
+		old.removed(cluster);
+		moveShip(ship, cluster);
+		
+		// Any two of the ships which were linked to it could now be in different parts
+		for (int i = 0; i < linked.size(); i++) {
+			for (int j = i + 1; j < linked.size(); j++)
+				separate(linked.get(i), linked.get(j));
+		}
+	}
+	
+	/**
+	 * Called when the number of links which a ship has changes, so that its cluster's damage rate and
+	 * number of stationary ships stay up to date
+	 * @param ship The ship
+	 * @param oldLinks The number of links which the ship had before the change
+	 * @param newLinks The number of links which the ship has now
+	 */
+	public void linkCountChanged(Ship ship, int oldLinks, int newLinks) {
+		Cluster cluster = ship.getCluster();
+		if (cluster == null)
+			return;
+		
+		cluster.damageRate += World.getShipDamageRate(newLinks) - World.getShipDamageRate(oldLinks);
+		cluster.numStationary += isStationary(newLinks) - isStationary(oldLinks);
+	}
+	
+	/**
+	 * Finds the bounding boxes of the clusters which could have moved again.  Must be called after each step.
+	 * A cluster which stopped moving during the step is still found again once, as its ships were drawn moving.
+	 * The moving clusters are grown in one pass over the ships, in the order of their slots.
+	 */
+	public void shipsMoved() {
+		boolean anyGrowing = false;
+		for (Cluster cluster : clusters) {
+			boolean moving = !cluster.isStationary();
+			cluster.growing = moving || cluster.moving;
+			cluster.moving = moving;
+			
+			if (cluster.growing) {
+				cluster.clearBounds();
+				anyGrowing = true;
+			}
+		}
+		
+		if (!anyGrowing)
+			return;
+		
+		for (int i = 0; i < store.size(); i++) {
+			Cluster cluster = store.getShip(i).getCluster();
+			if (cluster.growing)
+				cluster.include(i);
+		}
+		
+		for (Cluster cluster : clusters) {
+			if (cluster.growing) {
+				cluster.growing = false;
+				cluster.boundsValid = true;
+			}
+		}
+	}
+	
+	/**
+	 * Marks the bounding box of every cluster as out of date, and treats every cluster as moving in the next step.
+	 * Must be called when the world is resized, as the next step can move even stationary ships back inside it.
+	 */
+	public void invalidateBounds() {
+		for (Cluster cluster : clusters) {
+			cluster.boundsValid = false;
+			cluster.moving = true;
+		}
+	}
+	
+	/**
+	 * @return The number of clusters, including ships which aren't linked to any other ship
+	 */
+	public int getNumClusters() {
+		return clusters.size();
+	}
+	
+	/**
+	 * @return The number of ships in the largest cluster
+	 */
+	public int getLargestSize() {
+		return largestSize;
+	}
+	
+	/**
+	 * @return Every cluster, in the order they were created
+	 */
+	public Iterable<Cluster> getClusters() {
+		return clusters;
+	}
+	
+	/**
+	 * Creates an empty cluster, reusing one which has been emptied if there is one
+	 * @return The cluster
+	 */
+	private Cluster newCluster() {
+		Cluster cluster = clusterPool.isEmpty() ? new Cluster() : clusterPool.remove(clusterPool.size() - 1);
+		cluster.damageRate = 0;
+		cluster.numStationary = 0;
+		cluster.clearBounds();
+		cluster.boundsValid = false;
+		cluster.moving = true;
+		clusters.add(cluster);
+		return cluster;
+	}
+	
+	/**
+	 * Moves a ship into a cluster, taking it out of the cluster which it was in
+	 * @param ship The ship
+	 * @param cluster The cluster to move it to
+	 */
+	private void moveShip(Ship ship, Cluster cluster) {
+		if (ship.getCluster() != null)
+			removeShip(ship);
+		
+		ship.setCluster(cluster);
+		sizeChanged(cluster.ships.size(), cluster.ships.size() + 1);
+		cluster.ships.add(ship);
+		cluster.damageRate += World.getShipDamageRate(ship.getNumLinks());
+		cluster.numStationary += isStationary(ship.getNumLinks());
+	}
+	
+	/**
+	 * Takes a ship out of the cluster which it is in, forgetting the cluster if it is left empty
+	 * @param ship The ship
+	 */
+	private void removeShip(Ship ship) {
+		Cluster cluster = ship.getCluster();
+		
+		sizeChanged(cluster.ships.size(), cluster.ships.size() - 1);
+		cluster.ships.remove(ship);
+		cluster.damageRate -= World.getShipDamageRate(ship.getNumLinks());
+		cluster.numStationary -= isStationary(ship.getNumLinks());
+		
+		if (cluster.ships.isEmpty()) {
+			clusters.remove(cluster);
+			clusterPool.add(cluster);
+		}
+	}
+	
+	/**
+	 * Splits two ships in the same cluster into different clusters if they are no longer connected by links.
+	 * The links are searched from both ships at the same time, so only the smaller part is ever searched completely.
+	 * @param a The first ship
+	 * @param b The second ship
+	 */
+	private void separate(Ship a, Ship b) {
+		if (a.getCluster() != b.getCluster())
+			return;
+		
+		startSearch();
+		int seenA = search;
+		int seenB = search + 1;
+		sideA.clear();
+		sideB.clear();
+		see(a, sideA, seenA);
+		see(b, sideB, seenB);
+		int headA = 0;
+		int headB = 0;
+		
+		while (true) {
+			// The side which runs out of ships first is split off from the rest
+			if (headA == sideA.size()) {
+				split(sideA);
+				return;
+			}
+			if (headB == sideB.size()) {
+				split(sideB);
+				return;
+			}
+			
+			if (visit(sideA.get(headA++), sideA, seenA, seenB) || visit(sideB.get(headB++), sideB, seenB, seenA))
+				return; // The ships are still connected
+		}
+	}
+	
+	/**
+	 * Starts a new search, making sure that every slot can be marked and that no slot is marked by it yet
+	 */
+	private void startSearch() {
+		if (seenBy.length < store.size())
+			seenBy = Arrays.copyOf(seenBy, Math.max(store.size(), 2 * seenBy.length));
+		
+		search += 2;
+		if (search < 0) {
+			// The marks have wrapped around, so forget every old mark
+			Arrays.fill(seenBy, 0);
+			search = 2;
+		}
+	}
+	
+	/**
+	 * Marks a ship as seen by one side of the search, and adds it to that side
+	 * @param ship The ship
+	 * @param side The ships seen by the side
+	 * @param mark The mark of the side
+	 */
+	private void see(Ship ship, List<Ship> side, int mark) {
+		seenBy[ship.getSlot()] = mark;
+		side.add(ship);
+	}
+	
+	/**
+	 * Visits a ship on one side of a search, and adds the ships linked to it which haven't been seen yet
+	 * @param ship The ship to visit
+	 * @param side The ships seen by this side
+	 * @param mark The mark of this side
+	 * @param otherMark The mark of the other side
+	 * @return Whether or not the two sides have met
+	 */
+	private boolean visit(Ship ship, List<Ship> side, int mark, int otherMark) {
+		for (Ship other : ship.getLinks()) {
+			int seen = seenBy[other.getSlot()];
+			if (seen == otherMark)
+				return true;
+			
+			if (seen != mark)
+				see(other, side, mark);
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Moves ships which have been split off from their cluster into a new cluster.
+	 * The new cluster's bounding box is found from the ships, and the rest of the old cluster
+	 * only has its box found again if the ships which left were on its edge.
+	 * @param ships The ships
+	 */
+	private void split(List<Ship> ships) {
+		Cluster old = ships.get(0).getCluster();
+		Cluster cluster = newCluster();
+		for (int i = 0; i < ships.size(); i++)
+			cluster.include(ships.get(i).getSlot());
+		cluster.boundsValid = true;
+		old.removed(cluster);
+		
+		for (int i = 0; i < ships.size(); i++)
+			moveShip(ships.get(i), cluster);
+	}
+	
+	/**
+	 * Updates the number of clusters of each size, and the size of the largest cluster
+	 * @param oldSize The old size of a cluster which has changed size
+	 * @param newSize The new size of the cluster
+	 */
+	private void sizeChanged(int oldSize, int newSize) {
+		if (newSize >= sizeCounts.length)
+			sizeCounts = Arrays.copyOf(sizeCounts, Math.max(newSize + 1, 2 * sizeCounts.length));
+		
+		sizeCounts[oldSize]--;
+		sizeCounts[newSize]++;
+		
+		if (newSize > largestSize)
+			largestSize = newSize;
+		while (largestSize > 0 && sizeCounts[largestSize] == 0)
+			largestSize--;
+	}
+	
+	/**
+	 * @param numLinks A number of links
+	 * @return 1 if a ship with that many links is stationary, or 0 if it is moving
+	 */
+	private static int isStationary(int numLinks) {
+		return numLinks >= ShipStore.MAX_LINKS ? 1 : 0;
+	}
+	
+	/**
+	 * The Cluster class is a group of ships which are all connected to eachother by links
+	 *
+	 * @author Michael Layzell
+	 *
+	 */
+	public class Cluster {
+		
+		// The ships in the cluster
+		private Set<Ship> ships = new LinkedHashSet<Ship>();
+		
+		// The damage which the ships in the cluster do every World.DEFAULT_TIMESTEP millis
+		private double damageRate = 0;
+		
+		// The number of ships in the cluster which have stopped moving
+		private int numStationary = 0;
+		
+		// The smallest and largest coordinates of the centers of the ships in the cluster
+		private double minX;
+		private double minY;
+		private double maxX;
+		private double maxY;
+		
+		// Whether the bounding box is up to date with where the ships are
+		private boolean boundsValid = false;
+		
+		// Whether any of the ships were moving at the end of the last step
+		private boolean moving = true;
+		
+		// Whether the bounding box is being grown to hold the ships after a step
+		private boolean growing = false;
+		
+		/**
+		 * @return The number of ships in the cluster
+		 */
+		public int getSize() {
+			return ships.size();
+		}
+		
+		/**
+		 * @return The ships in the cluster
+		 */
+		public Iterable<Ship> getShips() {
+			return ships;
+		}
+		
+		/**
+		 * @return The damage which the ships in the cluster do every World.DEFAULT_TIMESTEP millis
+		 */
+		public double getDamageRate() {
+			return damageRate;
+		}
+		
+		/**
+		 * @return Whether or not every ship in the cluster has stopped moving
+		 */
+		public boolean isStationary() {
+			return numStationary == ships.size();
+		}
+		
+		/**
+		 * @return The smallest X coordinate of the center of a ship in the cluster
+		 */
+		public double getMinX() {
+			updateBounds();
+			return minX;
+		}
+		
+		/**
+		 * @return The smallest Y coordinate of the center of a ship in the cluster
+		 */
+		public double getMinY() {
+			updateBounds();
+			return minY;
+		}
+		
+		/**
+		 * @return The largest X coordinate of the center of a ship in the cluster
+		 */
+		public double getMaxX() {
+			updateBounds();
+			return maxX;
+		}
+		
+		/**
+		 * @return The largest Y coordinate of the center of a ship in the cluster
+		 */
+		public double getMaxY() {
+			updateBounds();
+			return maxY;
+		}
+		
+		/**
+		 * Determines whether the centers of the ships in the cluster could be inside a rectangle
+		 * @param minX The X coordinate of the left side of the rectangle
+		 * @param minY The Y coordinate of the top of the rectangle
+		 * @param maxX The X coordinate of the right side of the rectangle
+		 * @param maxY The Y coordinate of the bottom of the rectangle
+		 * @return Whether or not the rectangle overlaps the cluster's bounding box
+		 */
+		public boolean intersects(double minX, double minY, double maxX, double maxY) {
+			updateBounds();
+			return this.maxX >= minX && this.minX <= maxX && this.maxY >= minY && this.minY <= maxY;
+		}
+		
+		/**
+		 * Grows the bounding box to hold another cluster's bounding box
+		 * @param other The other cluster, whose bounding box must be up to date
+		 */
+		private void include(Cluster other) {
+			minX = Math.min(minX, other.minX);
+			minY = Math.min(minY, other.minY);
+			maxX = Math.max(maxX, other.maxX);
+			maxY = Math.max(maxY, other.maxY);
+		}
+		
+		/**
+		 * Called when ships leave the cluster.  The bounding box is only found again if they could have been on its edge.
+		 * @param other A cluster holding the ships which left, whose bounding box must be up to date
+		 */
+		private void removed(Cluster other) {
+			if (other.minX <= minX || other.minY <= minY || other.maxX >= maxX || other.maxY >= maxY)
+				boundsValid = false;
+		}
+		
+		/**
+		 * Grows the bounding box to hold a ship.
+		 * Ships are drawn between where they were at the start and end of the last step, so both are included.
+		 * @param slot The slot of the ship
+		 */
+		private void include(int slot) {
+			minX = Math.min(minX, Math.min(store.getX(slot), store.getPrevX(slot)));
+			minY = Math.min(minY, Math.min(store.getY(slot), store.getPrevY(slot)));
+			maxX = Math.max(maxX, Math.max(store.getX(slot), store.getPrevX(slot)));
+			maxY = Math.max(maxY, Math.max(store.getY(slot), store.getPrevY(slot)));
+		}
+		
+		/**
+		 * Empties the bounding box, so that it can be grown to hold the ships
+		 */
+		private void clearBounds() {
+			minX = Double.POSITIVE_INFINITY;
+			minY = Double.POSITIVE_INFINITY;
+			maxX = Double.NEGATIVE_INFINITY;
+			maxY = Double.NEGATIVE_INFINITY;
+		}
+		
+		/**
+		 * Finds the bounding box from the ships in the cluster, if it is out of date
+		 */
+		private void updateBounds() {
+			if (boundsValid)
+				return;
+			
+			clearBounds();
+			for (Ship ship : ships)
+				include(ship.getSlot());
+			
+			boundsValid = true;
+		}
+	}
+	
+}
@@ -1,66 +1,147 @@
 
 
+import java.awt.Color;
 import java.awt.Graphics2D;
-import java.util.Iterator;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.ArrayList;
 
 /**
  * This class manages effect objects for the game. 
  * It ensures that effects are updated and cleaned up when they are completed.
+ * Explosions and points displays which are done are kept, and reused by createExplosion() and createPointsDisplay().
+ * It holds a limited number of effects, so that a burst of effects can't slow the game down.
  * 
  * @author Michael Layzell
  * Made for CISC 124, Winter 2013
  */
 public class EffectManager {
+	
+	// What happens when an effect is added while the EffectManager is full
+	public static final int DROP_OLDEST = 0; // The oldest effect is removed to make room for the new one
+	public static final int SKIP_NEW = 1; // The new effect is not added
+	
+	// The kinds of effects which are written by write()
+	private static final byte SNAPSHOT_EXPLOSION = 0;
+	private static final byte SNAPSHOT_POINTS_DISPLAY = 1;
+	
+	// The default maximum number of effects
+	public static final int DEFAULT_CAPACITY = 1024;
 
-	private List<Effect> effects = new ArrayList<Effect>();
+	// The effects, oldest first, stored in a circular array starting at 'first'
+	private Effect[] effects;
+	private int first = 0;
+	private int numEffects = 0;
 	
-	private static EffectManager eManager;
+	// What happens when an effect is added while the EffectManager is full
+	private int overflowPolicy;
+	
+	// Effects which are done, and can be reused rather than creating new ones
+	private List<Explosion> explosionPool = new ArrayList<Explosion>();
+	private List<PointsDisplay> pointsDisplayPool = new ArrayList<PointsDisplay>();
 	
 	/**
-	 * Gets the static EffectManager
-	 * @return The static EffectManager, or a new EffectManager if there is currently no static EffectManager
+	 * Creates an EffectManager which holds up to DEFAULT_CAPACITY effects, dropping the oldest when it is full
 	 */
-	public static EffectManager getEffectManager() {
-		// Creates the static eManager if it isn't set yet
-		if (eManager == null) 
-			eManager = new EffectManager();
-		
-		// Returns the eManager
-		return eManager;
+	public EffectManager() {
+		this(DEFAULT_CAPACITY, DROP_OLDEST);
+	}
+	
+	/**
+	 * Creates an EffectManager
+	 * @param capacity The maximum number of effects
+	 * @param overflowPolicy What happens when an effect is added while the EffectManager is full - 
+	 * either DROP_OLDEST or SKIP_NEW
+	 */
+	public EffectManager(int capacity, int overflowPolicy) {
+		effects = new Effect[capacity];
+		this.overflowPolicy = overflowPolicy;
 	}
 	
 	/**
-	 * Resets the static EffectManager
-	 * ensures that effects do not carry over between game sessions
+	 * @return The number of effects currently on the screen
 	 */
-	public static void resetEffectManager() {
-		eManager = null;
+	public int getNumEffects() {
+		return numEffects;
 	}
 	
 	/**
 	 * Adds the effect e to the screen
 	 * @param e The effect to add
+	 * @return Whether or not the effect was added - false if the EffectManager was full and is skipping new effects
 	 */
-	public void addEffect(Effect e) {
-		effects.add(e);
+	public boolean addEffect(Effect e) {
+		if (!makeRoom())
+			return false;
+		
+		effects[(first + numEffects) % effects.length] = e;
+		numEffects++;
+		return true;
+	}
+	
+	/**
+	 * Adds an explosion to the screen, reusing an explosion which is done if there is one
+	 * @param x The X coordinate of the explosion
+	 * @param y The Y coordinate of the explosion
+	 */
+	public void createExplosion(int x, int y) {
+		if (!makeRoom())
+			return;
+		
+		if (explosionPool.isEmpty()) {
+			addEffect(new Explosion(x, y));
+			return;
+		}
+		
+		Explosion explosion = explosionPool.remove(explosionPool.size() - 1);
+		explosion.reset(x, y);
+		addEffect(explosion);
 	}
 	
 	/**
-	 * Updates all of the effects managed by the EffectManager
+	 * Adds a points display to the screen, reusing a points display which is done if there is one
+	 * @param x The starting x-coordinate of the points display
+	 * @param y The starting y-coordinate of the points display
+	 * @param points The number of points to display
+	 * @param color The color of the points display
+	 */
+	public void createPointsDisplay(double x, double y, int points, Color color) {
+		if (!makeRoom())
+			return;
+		
+		if (pointsDisplayPool.isEmpty()) {
+			addEffect(new PointsDisplay(x, y, points, color));
+			return;
+		}
+		
+		PointsDisplay pointsDisplay = pointsDisplayPool.remove(pointsDisplayPool.size() - 1);
+		pointsDisplay.reset(x, y, points, color);
+		addEffect(pointsDisplay);
+	}
+	
+	/**
+	 * Updates all of the effects managed by the EffectManager.
+	 * Effects which are done are removed in the same pass, by moving the remaining effects down to fill their places.
 	 * @param delta The time since the last tick
 	 */
 	public void tick(long delta) {
-		for (Effect e : effects)
+		int kept = 0;
+		for (int i = 0; i < numEffects; i++) {
+			Effect e = effects[(first + i) % effects.length];
 			e.tick(delta);
-		
-		// Check to see if any of the effects are done
-		Iterator<Effect> iterator = effects.iterator();
-		while (iterator.hasNext()) {
-			if (iterator.next().done())
-				iterator.remove();
+			
+			// Check to see if the effect is done
+			if (e.done())
+				recycle(e);
+			else
+				effects[(first + kept++) % effects.length] = e;
 		}
+		
+		// Clear the places which are no longer used
+		for (int i = kept; i < numEffects; i++)
+			effects[(first + i) % effects.length] = null;
+		
+		numEffects = kept;
 	}
 	
 	/**
@@ -68,8 +149,128 @@ public class EffectManager {
 	 * @param g The graphics context to draw to
 	 */
 	public void paintEffects(Graphics2D g) {
-		for (Effect e : effects)
-			e.paint(g);
+		paintEffects(g, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, 
+				Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+	
+	/**
+	 * Draws the effects which are at least partly inside an area to the screen
+	 * @param g The graphics context to draw to
+	 * @param minX The X coordinate of the left side of the area
+	 * @param minY The Y coordinate of the top of the area
+	 * @param maxX The X coordinate of the right side of the area
+	 * @param maxY The Y coordinate of the bottom of the area
+	 */
+	public void paintEffects(Graphics2D g, double minX, double minY, double maxX, double maxY) {
+		for (int i = 0; i < numEffects; i++) {
+			Effect e = effects[(first + i) % effects.length];
+			if (e.intersects(minX, minY, maxX, maxY))
+				e.paint(g);
+		}
+	}
+	
+	/**
+	 * @return The number of bytes which write() writes
+	 */
+	public int getSnapshotSize() {
+		int size = 4;
+		for (int i = 0; i < numEffects; i++) {
+			Effect e = effects[(first + i) % effects.length];
+			if (e instanceof Explosion)
+				size += 1 + Explosion.SNAPSHOT_SIZE;
+			else if (e instanceof PointsDisplay)
+				size += 1 + PointsDisplay.SNAPSHOT_SIZE;
+		}
+		
+		return size;
+	}
+	
+	/**
+	 * Writes the explosions and points displays to a buffer, oldest first.
+	 * Other kinds of effects are not written.
+	 * @param buffer The buffer to write to
+	 */
+	public void write(ByteBuffer buffer) {
+		int count = 0;
+		for (int i = 0; i < numEffects; i++) {
+			Effect e = effects[(first + i) % effects.length];
+			if (e instanceof Explosion || e instanceof PointsDisplay)
+				count++;
+		}
+		buffer.putInt(count);
+		
+		for (int i = 0; i < numEffects; i++) {
+			Effect e = effects[(first + i) % effects.length];
+			if (e instanceof Explosion) {
+				buffer.put(SNAPSHOT_EXPLOSION);
+				((Explosion) e).write(buffer);
+			} else if (e instanceof PointsDisplay) {
+				buffer.put(SNAPSHOT_POINTS_DISPLAY);
+				((PointsDisplay) e).write(buffer);
+			}
+		}
+	}
+	
+	/**
+	 * Replaces the effects with the effects written by write()
+	 * @param buffer The buffer to read from
+	 */
+	public void read(ByteBuffer buffer) {
+		// Remove the current effects
+		for (int i = 0; i < numEffects; i++) {
+			recycle(effects[(first + i) % effects.length]);
+			effects[(first + i) % effects.length] = null;
+		}
+		first = 0;
+		numEffects = 0;
+		
+		int count = buffer.getInt();
+		for (int i = 0; i < count; i++) {
+			byte kind = buffer.get();
+			if (kind == SNAPSHOT_EXPLOSION) {
+				Explosion explosion = explosionPool.isEmpty() ? new Explosion(0, 0) 
+						: explosionPool.remove(explosionPool.size() - 1);
+				explosion.read(buffer);
+				addEffect(explosion);
+			} else if (kind == SNAPSHOT_POINTS_DISPLAY) {
+				PointsDisplay pointsDisplay = pointsDisplayPool.isEmpty() ? new PointsDisplay(0, 0, 0, Color.CYAN) 
+						: pointsDisplayPool.remove(pointsDisplayPool.size() - 1);
+				pointsDisplay.read(buffer);
+				addEffect(pointsDisplay);
+			} else {
+				throw new IllegalArgumentException("Unknown effect " + kind);
+			}
+		}
+	}
+	
+	/**
+	 * Makes sure that there is room for another effect, removing the oldest effect if that is the overflow policy
+	 * @return Whether or not there is room for another effect
+	 */
+	private boolean makeRoom() {
+		if (numEffects < effects.length)
+			return true;
+		
+		if (overflowPolicy == SKIP_NEW || effects.length == 0)
+			return false;
+		
+		// Drop the oldest effect
+		recycle(effects[first]);
+		effects[first] = null;
+		first = (first + 1) % effects.length;
+		numEffects--;
+		return true;
+	}
+	
+	/**
+	 * Keeps an effect which is done so that it can be reused, if it is a kind of effect which can be reused
+	 * @param e The effect which is done
+	 */
+	private void recycle(Effect e) {
+		if (e instanceof Explosion)
+			explosionPool.add((Explosion) e);
+		else if (e instanceof PointsDisplay)
+			pointsDisplayPool.add((PointsDisplay) e);
 	}
 
 	/**
@@ -94,6 +295,16 @@ public class EffectManager {
 		 */
 		public void paint(Graphics2D g);
 		
+		/**
+		 * Checks whether the effect would draw anything inside an area
+		 * @param minX The X coordinate of the left side of the area
+		 * @param minY The Y coordinate of the top of the area
+		 * @param maxX The X coordinate of the right side of the area
+		 * @param maxY The Y coordinate of the bottom of the area
+		 * @return Whether or not the effect is at least partly inside the area
+		 */
+		public boolean intersects(double minX, double minY, double maxX, double maxY);
+		
 		/**
 		 * Checks whether the effect is complete
 		 * @return Whether the effect is complete
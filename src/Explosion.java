@@ -2,6 +2,7 @@
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
 
 /**
  * This class represents an explosion.  It is displayed on the screen when a ship is destroyed.
@@ -14,14 +15,16 @@ public class Explosion implements EffectManager.Effect {
 	// The time in miliseconds which the explosion takes
 	private static final int EXPLOSION_TIME = 750;
 
-	// The number of frames in the x and y directions
-	private static final int EXPLOSION_XFRAMES = 4;
-	private static final int EXPLOSION_YFRAMES = 4;
+	// The number of frames in the explosion animation
+	private static final int EXPLOSION_FRAMES = 16;
 
 	// Width and Height of the frame
 	private static final int WIDTH = 64;
 	private static final int HEIGHT = 64;
 
+	// The number of bytes which write() writes
+	public static final int SNAPSHOT_SIZE = 4 + 4 + 8;
+	
 	// The amount of time, in miliseconds, which the explosion has been alive
 	private long lifespan = 0;
 	
@@ -31,8 +34,8 @@ public class Explosion implements EffectManager.Effect {
 	// Whether or not the explosion is done
 	private boolean isDone = false;
 	
-	// The current image to draw
-	private BufferedImage visual;
+	// The current frame of the explosion to draw
+	private int frame;
 	
 	/**
 	 * Creates an explosion at the defined point
@@ -40,8 +43,42 @@ public class Explosion implements EffectManager.Effect {
 	 * @param y The Y coordinate of the explosion
 	 */
 	public Explosion(int x, int y) {
+		reset(x, y);
+	}
+	
+	/**
+	 * Restarts the explosion at the defined point, so that an explosion which is done can be reused
+	 * @param x The X coordinate of the explosion
+	 * @param y The Y coordinate of the explosion
+	 */
+	public void reset(int x, int y) {
 		this.x = x;
 		this.y = y;
+		
+		lifespan = 0;
+		frame = 0;
+		isDone = false;
+	}
+	
+	/**
+	 * Writes the position of the explosion, and how long it has been alive, to a buffer
+	 * @param buffer The buffer to write to
+	 */
+	public void write(ByteBuffer buffer) {
+		buffer.putInt(x);
+		buffer.putInt(y);
+		buffer.putLong(lifespan);
+	}
+	
+	/**
+	 * Restarts the explosion at a point written by write()
+	 * @param buffer The buffer to read from
+	 */
+	public void read(ByteBuffer buffer) {
+		reset(buffer.getInt(), buffer.getInt());
+		
+		// Move the animation on to the frame which it was on
+		tick(buffer.getLong());
 	}
 
 	/*
@@ -52,21 +89,12 @@ public class Explosion implements EffectManager.Effect {
 	public void tick(long delta) {
 		lifespan += delta;
 		
-		// Get the sprite sheet
-		BufferedImage spriteSheet = SpriteManager.getSprite(SpriteManager.EXPLOSION);
+		frame = (int) lifespan / (EXPLOSION_TIME / EXPLOSION_FRAMES);
 		
-		int frame = (int) lifespan / (EXPLOSION_TIME / (EXPLOSION_XFRAMES * EXPLOSION_YFRAMES));
-		
-		int frameX = frame % EXPLOSION_XFRAMES;
-		int frameY = frame / EXPLOSION_XFRAMES;
-		
-		if (frameY >= EXPLOSION_YFRAMES) {
+		if (frame >= EXPLOSION_FRAMES) {
 			// The explosion is done
 			isDone = true;
-			return;
 		}
-				
-		visual = spriteSheet.getSubimage(frameX * WIDTH, frameY * HEIGHT, WIDTH, HEIGHT);
 	}
 
 	/*
@@ -75,8 +103,20 @@ public class Explosion implements EffectManager.Effect {
 	 */
 	@Override
 	public void paint(Graphics2D g) {
+		// The sprites are only needed when drawing, so that explosions can be simulated without a display
+		BufferedImage visual = SpriteManager.getFrame(SpriteManager.EXPLOSION, frame);
+		
 		// Draw the current visual image
-		g.drawImage(visual, x - WIDTH/2, y - HEIGHT/2, WIDTH, HEIGHT, null);
+		g.drawImage(visual, x - WIDTH/2, y - HEIGHT/2, null);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see EffectManager.Effect#intersects(double, double, double, double)
+	 */
+	@Override
+	public boolean intersects(double minX, double minY, double maxX, double maxY) {
+		return x + WIDTH/2 >= minX && x - WIDTH/2 <= maxX && y + HEIGHT/2 >= minY && y - HEIGHT/2 <= maxY;
 	}
 
 	/*
@@ -0,0 +1,209 @@
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+
+import javax.swing.AbstractAction;
+import javax.swing.JComponent;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+
+/**
+ * This class passes the player's input in a GamePanel to the world and the camera.
+ * Clicking destroys the ship under the mouse, and dragging destroys every ship in the selected rectangle.
+ * Dragging with the right mouse button pans the camera, and the mouse wheel zooms it.
+ * It also resizes the world with the panel, and shows and hides the profiler's overlay.
+ * Input arrives on the Event Dispatch Thread while the game loop steps the world, so the world is locked whenever it is used.
+ *
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class GameController extends MouseAdapter {
+	
+	// The key which shows and hides the profiler's overlay
+	private static final String PROFILER_KEY = "F3";
+	
+	// How much each notch of the mouse wheel zooms the camera
+	private static final double ZOOM_STEP = 1.25;
+	
+	// How far the mouse must be dragged before it starts selecting a rectangle, in pixels
+	private static final int DRAG_THRESHOLD = 5;
+	
+	// The panel which the input comes from
+	private GamePanel panel;
+	
+	// The world which is being played in, and the view of it which is shown in the panel
+	private World world;
+	private Camera camera;
+	
+	// The score manager
+	private GameFrame.ScoreManager scoreManager;
+	
+	// Where the mouse was pressed, or null if it was pressed while the game was paused
+	private Point pressPos = null;
+	
+	// Where the mouse was when the camera was last panned, or null if it isn't being panned
+	private Point panPos = null;
+	
+	// The rectangle which the player is selecting by dragging the mouse, or null if they aren't
+	private volatile Rectangle selection = null;
+	
+	/**
+	 * Creates a GameController, and starts listening to the panel
+	 * @param panel The panel which the input comes from
+	 * @param world The world which is being played in
+	 * @param camera The view of the world which is shown in the panel
+	 * @param overlay The profiler's overlay, which is shown and hidden by PROFILER_KEY
+	 * @param scoreManager The score manager, which is updated when ships are destroyed
+	 */
+	public GameController(final GamePanel panel, World world, Camera camera, final ProfilerOverlay overlay,
+			GameFrame.ScoreManager scoreManager) {
+		this.panel = panel;
+		this.world = world;
+		this.camera = camera;
+		this.scoreManager = scoreManager;
+		
+		panel.addMouseListener(this);
+		panel.addMouseMotionListener(this);
+		panel.addMouseWheelListener(this);
+		
+		// The world fills the panel, unless it is a large arena
+		panel.addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				resized();
+			}
+		});
+		
+		// Show or hide the profiler's overlay
+		panel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(PROFILER_KEY), "toggleProfiler");
+		panel.getActionMap().put("toggleProfiler", new AbstractAction() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				overlay.toggle();
+				panel.repaint();
+			}
+		});
+	}
+	
+	/**
+	 * @return The rectangle which the player is selecting, in screen coordinates, or null if they aren't
+	 */
+	public Rectangle getSelection() {
+		return selection;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see java.awt.event.MouseAdapter#mousePressed(java.awt.event.MouseEvent)
+	 */
+	@Override
+	public void mousePressed(MouseEvent e) {
+		if (SwingUtilities.isRightMouseButton(e)) {
+			panPos = e.getPoint();
+			return;
+		}
+		
+		// Ignore click if the game is paused
+		pressPos = null;
+		if (!panel.isRunning())
+			return;
+		
+		// Attempt to destroy the ship
+		Point clickPos = e.getPoint();
+		pressPos = clickPos;
+		int x = (int) Math.floor(camera.toWorldX(clickPos.x));
+		int y = (int) Math.floor(camera.toWorldY(clickPos.y));
+		synchronized (world) {
+			if (world.click(x, y))
+				scoreManager.updateDisplay(world.getHealth(), world.getScore(),
+						world.getClusterIndex().getLargestSize());
+		}
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see java.awt.event.MouseAdapter#mouseWheelMoved(java.awt.event.MouseWheelEvent)
+	 */
+	@Override
+	public void mouseWheelMoved(MouseWheelEvent e) {
+		camera.zoom(Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+		panel.repaintCamera();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see java.awt.event.MouseAdapter#mouseDragged(java.awt.event.MouseEvent)
+	 */
+	@Override
+	public void mouseDragged(MouseEvent e) {
+		if (panPos != null) {
+			camera.pan(e.getX() - panPos.x, e.getY() - panPos.y);
+			panPos = e.getPoint();
+			panel.repaintCamera();
+			return;
+		}
+		
+		if (pressPos == null)
+			return;
+		
+		Point dragPos = e.getPoint();
+		if (selection == null && pressPos.distance(dragPos) < DRAG_THRESHOLD)
+			return;
+		
+		Rectangle newSelection = new Rectangle(pressPos);
+		newSelection.add(dragPos);
+		selection = newSelection;
+		panel.repaintSelection();
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see java.awt.event.MouseAdapter#mouseReleased(java.awt.event.MouseEvent)
+	 */
+	@Override
+	public void mouseReleased(MouseEvent e) {
+		if (SwingUtilities.isRightMouseButton(e)) {
+			panPos = null;
+			return;
+		}
+		
+		Rectangle oldSelection = selection;
+		selection = null;
+		if (oldSelection == null)
+			return;
+		
+		panel.repaintSelection();
+		
+		// Ignore the selection if the game was paused while dragging
+		if (!panel.isRunning())
+			return;
+		
+		// Attempt to destroy the selected ships
+		int x1 = (int) Math.floor(camera.toWorldX(oldSelection.x));
+		int y1 = (int) Math.floor(camera.toWorldY(oldSelection.y));
+		int x2 = (int) Math.ceil(camera.toWorldX(oldSelection.x + oldSelection.width));
+		int y2 = (int) Math.ceil(camera.toWorldY(oldSelection.y + oldSelection.height));
+		synchronized (world) {
+			if (world.select(x1, y1, x2, y2) > 0)
+				scoreManager.updateDisplay(world.getHealth(), world.getScore(),
+						world.getClusterIndex().getLargestSize());
+		}
+	}
+	
+	/**
+	 * Fits the world, unless it is a large arena, and the camera to the new size of the panel
+	 */
+	private void resized() {
+		synchronized (world) {
+			if (!world.isLargeArena())
+				world.setBounds(panel.getWidth(), panel.getHeight());
+			camera.setBounds(panel.getWidth(), panel.getHeight(), world.getWidth(), world.getHeight());
+		}
+	}
+	
+}
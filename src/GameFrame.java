@@ -5,6 +5,10 @@ import java.awt.Color;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
@@ -22,12 +26,18 @@ import javax.swing.JPanel;
 public class GameFrame extends JFrame {
 	
 	// Starting score values
-	private static final int STARTING_LIFE = 10000;
+	public static final int STARTING_LIFE = 10000;
 	private static final int STARTING_SCORE = 0;
-
+	
 	// The spacing between the components in the score display
 	private static final int SCORE_HORIZ_SPACING = 10;
 	
+	// The minimum time between updates of the life display, in millis
+	private static final int DISPLAY_REFRESH_TIME = 100;
+	
+	// The file which games are saved to, and resumed from
+	public static final Path SAVE_FILE = Paths.get("saves", "game.snap");
+	
 	// The gamepanel
 	private GamePanel gamePanel;
 	
@@ -37,12 +47,61 @@ public class GameFrame extends JFrame {
 	// The labels which display the current life and score
 	private JLabel lifeDisplay;
 	private JLabel scoreDisplay;
-
+	private JLabel clusterDisplay;
+	
 	// The score manager - manages the player's score
 	private ScoreManager scoreManager;
-
-	public GameFrame(MainMenu mainMenu, String nexusName, double spawnRate) {
+	
+	/**
+	 * Creates a GameFrame, and starts a game in it
+	 * @param mainMenu The main menu to return to when the game is over
+	 * @param nexusName The name of the nexus which is being defended
+	 * @param spawnRate The time in millis between each ship being spawned
+	 * @param largeArena Whether to play in a large arena, which is explored with the camera
+	 * @param activeRendering Whether to draw the game with active rendering, rather than by Swing
+	 * @param record Whether to record the game, so that it can be replayed
+	 */
+	public GameFrame(MainMenu mainMenu, String nexusName, double spawnRate, boolean largeArena, 
+			boolean activeRendering, boolean record) {
+		super("Defend " + nexusName + "!");
+		createHeader(mainMenu, nexusName);
+		
+		// A large arena spawns ships more often, and gives the nexus more life, so that it is as crowded and lasts as long
+		double scale = largeArena ? GamePanel.ARENA_SCALE : 1;
+		int startingLife = (int) Math.round(STARTING_LIFE * scale);
+		scoreManager.setStartingLife(startingLife);
+		
+		// The central game panel
+		gamePanel = new GamePanel(spawnRate / scale, startingLife, STARTING_SCORE, largeArena, 
+				activeRendering, record, scoreManager);
+		addGamePanel();
+	}
+	
+	/**
+	 * Creates a GameFrame, and resumes a game in it
+	 * @param mainMenu The main menu to return to when the game is over
+	 * @param nexusName The name of the nexus which is being defended
+	 * @param world The world of the game to resume, such as one loaded from SAVE_FILE
+	 * @param activeRendering Whether to draw the game with active rendering, rather than by Swing
+	 */
+	public GameFrame(MainMenu mainMenu, String nexusName, World world, boolean activeRendering) {
 		super("Defend " + nexusName + "!");
+		createHeader(mainMenu, nexusName);
+		
+		if (world.isLargeArena())
+			scoreManager.setStartingLife((int) Math.round(STARTING_LIFE * GamePanel.ARENA_SCALE));
+		
+		// The central game panel
+		gamePanel = new GamePanel(world, activeRendering, scoreManager);
+		addGamePanel();
+	}
+	
+	/**
+	 * Creates the score manager, and the header containing the buttons and score display
+	 * @param mainMenu The main menu to return to when the game is over
+	 * @param nexusName The name of the nexus which is being defended
+	 */
+	private void createHeader(MainMenu mainMenu, String nexusName) {
 		// Make this frame dispose upon closing
 		setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
 		
@@ -50,7 +109,7 @@ public class GameFrame extends JFrame {
 		this.mainMenu = mainMenu;
 		
 		// Create the score manager
-		scoreManager = new ScoreManager(STARTING_LIFE, STARTING_SCORE);
+		scoreManager = new ScoreManager();
 		
 		// The panel which contains the play-pause button, etc.
 		JPanel headerPanel = new JPanel();
@@ -71,7 +130,42 @@ public class GameFrame extends JFrame {
 				playPauseBtn.setText(gamePanel.isRunning() ? "Pause" : "Play");
 			}
 		});
-		headerPanel.add(playPauseBtn, BorderLayout.WEST);
+		
+		// The save button
+		JButton saveButton = new JButton("Save");
+		saveButton.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				// Pause the game while it is being saved
+				boolean wasRunning = gamePanel.isRunning();
+				
+				if (wasRunning)
+					gamePanel.pause();
+				
+				try {
+					Files.createDirectories(SAVE_FILE.getParent());
+					gamePanel.save(SAVE_FILE);
+					JOptionPane.showMessageDialog(null, 
+							"The game has been saved. \n"
+							+ "It can be resumed from the main menu.",
+							"Game Saved", JOptionPane.INFORMATION_MESSAGE);
+				} catch (IOException ex) {
+					JOptionPane.showMessageDialog(null, 
+							"The game was unable to save to " + SAVE_FILE + ". \n"
+							+ ex.getMessage(),
+							"Save Error", JOptionPane.ERROR_MESSAGE);
+				}
+				
+				if (wasRunning)
+					gamePanel.play();
+			}
+		});
+		
+		JPanel buttonPanel = new JPanel();
+		buttonPanel.setBackground(Color.DARK_GRAY);
+		buttonPanel.add(playPauseBtn);
+		buttonPanel.add(saveButton);
+		headerPanel.add(buttonPanel, BorderLayout.WEST);
 		
 		// The stop/quit button
 		JButton quitButton = new JButton("Stop");
@@ -106,7 +200,7 @@ public class GameFrame extends JFrame {
 		scorePanel.setBackground(Color.DARK_GRAY);
 		
 		// Set the layout
-		GridLayout scorePanelLayout = new GridLayout(0,4);
+		GridLayout scorePanelLayout = new GridLayout(0,6);
 		scorePanelLayout.setHgap(SCORE_HORIZ_SPACING);
 		scorePanel.setLayout(scorePanelLayout);
 		
@@ -132,12 +226,26 @@ public class GameFrame extends JFrame {
 		scoreDisplay.setHorizontalAlignment(JLabel.LEFT);
 		scorePanel.add(scoreDisplay);
 		
+		// The number of ships in the largest cluster of linked ships
+		JLabel clusterLabel = new JLabel("Largest cluster:");
+		clusterLabel.setForeground(Color.WHITE);
+		clusterLabel.setHorizontalAlignment(JLabel.RIGHT);
+		scorePanel.add(clusterLabel);
+		
+		clusterDisplay = new JLabel("0");
+		clusterDisplay.setForeground(Color.LIGHT_GRAY);
+		clusterDisplay.setHorizontalAlignment(JLabel.LEFT);
+		scorePanel.add(clusterDisplay);
+		
 		headerPanel.add(scorePanel, BorderLayout.CENTER);
 		
 		add(headerPanel, BorderLayout.NORTH);
-		
-		// The central game panel
-		gamePanel = new GamePanel(spawnRate, scoreManager);
+	}
+	
+	/**
+	 * Adds the game panel to the frame, and sizes the frame to fit it
+	 */
+	private void addGamePanel() {
 		add(gamePanel, BorderLayout.CENTER);
 		
 		// Pack the frame
@@ -161,69 +269,58 @@ public class GameFrame extends JFrame {
 		super.dispose();
 		
 		gamePanel.pause(); // Make sure that the timer stops running
+		gamePanel.endRecording();
 		
 		mainMenu.setVisible(true);
 	}
 	
 	/**
-	 * The ScoreManager class maintains the current score of the game.
+	 * The ScoreManager class displays the current score of the game.
 	 * The ScoreManager also checks for win conditions
 	 * 
 	 * @author Michael Layzell
 	 *
 	 */
 	public class ScoreManager {
-		private double health;
-		private double score;
-
-		/**
-		 * Create a ScoreManager with initial values for health and score
-		 * @param initialHealth
-		 * @param initialScore
-		 */
-		public ScoreManager(int initialHealth, int initialScore) {
-			health = initialHealth;
-			score = initialScore;
-		}
 		
-		/**
-		 * Does damage to the nexus
-		 * @param damage The damage which has been dealt to the nexus
-		 */
-		public void doDamage(double damage) {
-			health -= damage;
-			updateDisplay();
-		}
+		// The life which the nexus started with
+		private int startingLife = STARTING_LIFE;
+		
+		// The values which are currently being displayed
+		private long displayedHealth = -1;
+		private long displayedScore = -1;
+		private int displayedCluster = -1;
+		private Color displayedColor = null;
+		
+		// The time when the display was last refreshed
+		private long lastRefreshTime = 0;
 		
 		/**
-		 * Adds score to the player's score
-		 * @param points The number of points to add to the player's score
+		 * Sets the life which the nexus started with, which the color of the life display is based on
+		 * @param startingLife The starting life
 		 */
-		public void gainScore(double points) {
-			score += points;
-			updateDisplay();
+		public void setStartingLife(int startingLife) {
+			this.startingLife = startingLife;
 		}
 		
 		/**
 		 * Updates the values displayed in at the top of the game display.
+		 * The display is refreshed at most once every DISPLAY_REFRESH_TIME millis, 
+		 * unless the score has changed or the game is over.
 		 * Also checks for win conditions.
+		 * @param health The current life of the nexus
+		 * @param score The player's current score
+		 * @param largestCluster The number of ships in the largest cluster of linked ships
 		 */
-		private void updateDisplay() {
-			if (health < 0)
-				health = 0;
+		public void updateDisplay(double health, double score, int largestCluster) {
+			long now = System.currentTimeMillis();
 			
-			lifeDisplay.setText(Long.toString(Math.round(health)));
-			scoreDisplay.setText(Long.toString(Math.round(score)));
+			if (health > 0 && Math.round(score) == displayedScore 
+					&& now - lastRefreshTime < DISPLAY_REFRESH_TIME)
+				return; // Updated recently enough
 			
-			// Color the life display based on current life total
-			if (health < 2000)
-				lifeDisplay.setForeground(Color.RED);
-			else if (health < 5000)
-				lifeDisplay.setForeground(Color.ORANGE);
-			else if (health < 7000)
-				lifeDisplay.setForeground(Color.YELLOW);
-			else
-				lifeDisplay.setForeground(Color.GREEN);
+			lastRefreshTime = now;
+			refreshDisplay(health, score, largestCluster);
 			
 			if (health <= 0) {
 				// The player has died
@@ -240,5 +337,45 @@ public class GameFrame extends JFrame {
 				GameFrame.this.dispose();
 			}
 		}
+		
+		/**
+		 * Changes the labels at the top of the game display.
+		 * Labels are only changed if what they display has changed, as each change causes the header to be laid out again.
+		 * @param health The current life of the nexus
+		 * @param score The player's current score
+		 * @param largestCluster The number of ships in the largest cluster of linked ships
+		 */
+		private void refreshDisplay(double health, double score, int largestCluster) {
+			if (Math.round(health) != displayedHealth) {
+				displayedHealth = Math.round(health);
+				lifeDisplay.setText(Long.toString(displayedHealth));
+			}
+			
+			if (Math.round(score) != displayedScore) {
+				displayedScore = Math.round(score);
+				scoreDisplay.setText(Long.toString(displayedScore));
+			}
+			
+			if (largestCluster != displayedCluster) {
+				displayedCluster = largestCluster;
+				clusterDisplay.setText(Integer.toString(displayedCluster));
+			}
+			
+			// Color the life display based on how much of the starting life is left
+			Color color;
+			if (health < 0.2 * startingLife)
+				color = Color.RED;
+			else if (health < 0.5 * startingLife)
+				color = Color.ORANGE;
+			else if (health < 0.7 * startingLife)
+				color = Color.YELLOW;
+			else
+				color = Color.GREEN;
+			
+			if (color != displayedColor) {
+				displayedColor = color;
+				lifeDisplay.setForeground(color);
+			}
+		}
 	}
 }
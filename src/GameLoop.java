@@ -0,0 +1,154 @@
+import java.util.concurrent.locks.LockSupport;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * This class runs the game loop on its own thread.
+ * The world is advanced in fixed steps using a high resolution clock, and then the GamePanel is told to draw it.
+ * Time which does not make up a full step is carried over to the next frame, so the game does not drift.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class GameLoop implements Runnable {
+	
+	// The number of nanoseconds in a milisecond
+	private static final long NANOS_PER_MILI = 1000000;
+	
+	// The longest time which is simulated in a single frame, in nanoseconds.
+	// Any more than this is dropped, so a long pause doesn't make the game run many steps to catch up.
+	private static final long MAX_FRAME_TIME = 250 * NANOS_PER_MILI;
+	
+	// The world which is being simulated
+	private World world;
+	
+	// The panel which draws the world
+	private GamePanel gamePanel;
+	
+	// The length of each step and of each frame, in nanoseconds
+	private long stepTime;
+	private long frameTime;
+	
+	// The thread which is running the loop, or null if it is stopped
+	private volatile Thread thread;
+	
+	// Whether or not the game panel has been told to update its display and has not done so yet
+	private volatile boolean displayPending = false;
+	
+	/**
+	 * Creates a GameLoop.  It does not start running until start() is called.
+	 * @param world The world to simulate. It is locked whenever it is being stepped.
+	 * @param gamePanel The panel which draws the world
+	 * @param tickRate The number of times to step the world each second
+	 * @param frameRate The maximum number of times to draw the world each second
+	 */
+	public GameLoop(World world, GamePanel gamePanel, int tickRate, int frameRate) {
+		this.world = world;
+		this.gamePanel = gamePanel;
+		
+		long timestep = getTimestep(tickRate);
+		world.setTimestep(timestep);
+		
+		stepTime = timestep * NANOS_PER_MILI;
+		frameTime = 1000 * NANOS_PER_MILI / frameRate;
+	}
+	
+	/**
+	 * Finds the length of each step when the world is stepped a number of times each second
+	 * @param tickRate The number of times to step the world each second
+	 * @return The length of each step, in millis
+	 */
+	public static long getTimestep(int tickRate) {
+		// The world can only step in whole millis
+		return Math.max(1, 1000 / tickRate);
+	}
+	
+	/**
+	 * @return Whether or not the loop is running
+	 */
+	public boolean isRunning() {
+		return thread != null;
+	}
+	
+	/**
+	 * Starts running the loop - no effect if it is already running
+	 */
+	public void start() {
+		if (thread != null)
+			return;
+		
+		thread = new Thread(this, "Game Loop");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Stops running the loop - no effect if it is already stopped.
+	 * The current frame is allowed to finish.
+	 */
+	public void stop() {
+		thread = null;
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		Thread myThread = Thread.currentThread();
+		
+		long lastTime = System.nanoTime();
+		long unsimulatedTime = 0;
+		
+		// The bytes which this thread had allocated at the start of the last frame, or -1 if the profiler was disabled
+		long allocated = -1;
+		
+		while (thread == myThread) {
+			long frameStart = System.nanoTime();
+			
+			// Measure how much memory each frame allocates while the profiler is enabled
+			if (Profiler.isEnabled()) {
+				long nowAllocated = Profiler.getThreadAllocatedBytes();
+				if (allocated != -1 && nowAllocated != -1)
+					Profiler.recordAllocation(nowAllocated - allocated);
+				allocated = nowAllocated;
+			} else {
+				allocated = -1;
+			}
+			
+			unsimulatedTime += Math.min(frameStart - lastTime, MAX_FRAME_TIME);
+			lastTime = frameStart;
+			
+			// Run as many steps as fit into the time which has passed
+			synchronized (world) {
+				while (unsimulatedTime >= stepTime) {
+					world.step();
+					unsimulatedTime -= stepTime;
+				}
+			}
+			
+			// Draw the world part of the way to the next step, so that movement is smooth
+			gamePanel.render((double) unsimulatedTime / stepTime);
+			
+			// The score display must be updated on the Event Dispatch Thread.
+			// Don't queue another update if the last one hasn't happened yet.
+			if (!displayPending) {
+				displayPending = true;
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						displayPending = false;
+						gamePanel.updateDisplay();
+					}
+				});
+			}
+			
+			// Wait until it is time for the next frame
+			long wakeTime = frameStart + frameTime;
+			long now;
+			while ((now = System.nanoTime()) < wakeTime && thread == myThread)
+				LockSupport.parkNanos(wakeTime - now);
+		}
+	}
+}
@@ -4,255 +4,395 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Point;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
-import java.util.ArrayList;
-import java.util.List;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.Random;
 
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
-import javax.swing.Timer;
 
 /**
  * This class represents the central panel in the game in which the game's elements are drawn.
- * The GamePanel manages almost all aspects of the game, including input, collisions, movement, and scoring.
+ * The GamePanel draws a World.  The player's input is passed to the world by a GameController,
+ * and the profiler's measurements are drawn over the game by a ProfilerOverlay.
+ * The world is advanced by a GameLoop on its own thread, so the world is locked whenever it is used here.
  * 
  * @author Michael Layzell
  * Made for CISC 124, Winter 2013
  */
 public class GamePanel extends JPanel {
 	
-	// The rate at which the timer fires
-	private static final int TIMER_RATE = 20;
+	// The number of times the world is stepped each second
+	public static final int TICK_RATE = 125;
 	
-	// The maximum number of times which the spawner will attempt to spawn a ship before giving up
-	private static final int MAX_SPAWN_TRIALS = 10;
+	// The maximum number of times the world is drawn each second
+	private static final int FRAME_RATE = 120;
 	
-	// The damage and points which each ship are worth
-	private static final double PER_MILI_DAMAGE = 0.05;
-	private static final double PER_SHIP_POINTS = 50;
+	// The default size of the panel
+	public static final int DEFAULT_WIDTH = 800;
+	public static final int DEFAULT_HEIGHT = 600;
 	
-	// A Random object used for random calculations
-	private static final Random random = new Random();
+	// The width and height of the world in a large arena, which is explored by panning and zooming the camera
+	public static final int ARENA_SIZE = 20000;
+	
+	// How many times larger the area of a large arena is than the default size of the panel.
+	// Large arenas spawn ships this many times as often, and the nexus has this many times as much life, 
+	// so that they are as crowded and last as long as a normal game.
+	public static final double ARENA_SCALE = (double) ARENA_SIZE * ARENA_SIZE / (DEFAULT_WIDTH * DEFAULT_HEIGHT);
+	
+	// The color of the edge of a large arena
+	private static final Color ARENA_EDGE = new Color(255, 156, 255);
 	
 	// The background color
 	private static final Color bgColor = new Color(59, 24, 80);
-
-	// The timer which ticks every 10ms
-	private Timer timer;
 	
-	// The list of ships
-	private List<Ship> ships = new ArrayList<Ship>();
+	// The size of the background image
+	private static final int BG_WIDTH = 800;
+	private static final int BG_HEIGHT = 600;
+	
+	// The folder which games are recorded into
+	private static final String RECORDING_FOLDER = "recordings";
+	
+	// The colors of the inside and the edge of the selected rectangle
+	private static final Color SELECTION_FILL = new Color(0, 255, 255, 48);
+	private static final Color SELECTION_EDGE = Color.CYAN;
+	
+	// The loop which runs the game
+	private GameLoop gameLoop;
+	
+	// The world which is being played in
+	private World world;
 	
-	// Time when the previous update occured
-	private long lastTime;
+	// The view of the world which is shown in the panel
+	private Camera camera = new Camera();
 	
-	// The spawn rate
-	private double spawnRate = 1000;
-	private long spawnTime;
+	// How far between the previous and current step to draw the ships
+	private volatile double alpha = 1;
+	
+	// Whether the game loop draws the game itself, or asks Swing to repaint the panel
+	private boolean activeRendering;
+	
+	// The image which frames are drawn to before being copied to the screen when using active rendering
+	private VolatileImage backBuffer;
+	
+	// The background color and image, drawn once at the size of the panel.
+	// It is locked while it is being drawn or replaced.
+	private BufferedImage background;
 	
 	// The score manager
 	private GameFrame.ScoreManager scoreManager;
 	
+	// The profiler's measurements, which are drawn over the game
+	private ProfilerOverlay profilerOverlay = new ProfilerOverlay();
+	
+	// Passes the player's input to the world and the camera
+	private GameController controller;
+	
 	/**
 	 * Creates a GamePanel - the component of a GameFrame which contains the gameplay
-	 * @param scoreManager The parent GameFrame's scoreManager
+	 * @param spawnRate The time in millis between each ship being spawned
+	 * @param initialHealth The starting life of the nexus
+	 * @param initialScore The starting score of the player
+	 * @param largeArena Whether the game is played in a world ARENA_SIZE wide and high, rather than one which fills the panel
+	 * @param activeRendering Whether the game loop should draw the game itself, rather than asking Swing to
+	 * @param record Whether the game should be recorded into the RECORDING_FOLDER, so that it can be replayed
+	 * @param sManager The parent GameFrame's scoreManager
 	 */
-	public GamePanel(double spawnRate, GameFrame.ScoreManager sManager) {
+	public GamePanel(double spawnRate, int initialHealth, int initialScore, boolean largeArena, 
+			boolean activeRendering, boolean record, GameFrame.ScoreManager sManager) {
 		super();
-		setPreferredSize(new Dimension(800, 600)); // Default size for the frame
-		setBackground(bgColor);
 		
-		// Save the spawn rate and score manager
-		this.spawnRate = spawnRate;
-		scoreManager = sManager;
+		// Create the world which the game is played in.
+		// The seed is kept so that the game can be recorded.
+		long seed = new Random().nextLong();
+		world = new World(spawnRate, initialHealth, initialScore, largeArena ? ARENA_SIZE : DEFAULT_WIDTH, 
+				largeArena ? ARENA_SIZE : DEFAULT_HEIGHT, largeArena, new Random(seed));
 		
-		// Start with 4 drones spawned (in the first few ticks)
-		spawnTime = Math.round(4 * spawnRate);
+		init(activeRendering, sManager);
 		
-		// Reset the effect manager
-		EffectManager.resetEffectManager();
+		if (record)
+			startRecording(seed);
 		
-		// Create the timer which will be run every 10ms.
-		timer = new Timer(TIMER_RATE, new ActionListener() {
-			@Override
-			public void actionPerformed(ActionEvent e) {
-				// This is run every approx. 10 ms.
-				// Calls the tick(long delta) method of the enclosing class
-				// Then, commands the screen to refresh
-				long delta = System.currentTimeMillis() - lastTime;
-				lastTime = System.currentTimeMillis();
-				
-				tick(delta);
-				repaint();
-			}
-		});
+		play(); // Start the game running
+	}
+	
+	/**
+	 * Creates a GamePanel which continues the game in an existing world, such as one loaded from a snapshot
+	 * @param world The world to play in
+	 * @param activeRendering Whether the game loop should draw the game itself, rather than asking Swing to
+	 * @param sManager The parent GameFrame's scoreManager
+	 */
+	public GamePanel(World world, boolean activeRendering, GameFrame.ScoreManager sManager) {
+		super();
 		
-		// Set the lastTime variable
-		lastTime = System.currentTimeMillis();
+		this.world = world;
+		init(activeRendering, sManager);
 		
-		// Create the mouse listener
-		this.addMouseListener(new MouseAdapter() {
-			@Override
-			public void mousePressed(MouseEvent e) {
-				// Ignore click if the game is paused
-				if (!isRunning())
-					return;
-				
-				// Attempt to destroy the ship
-				Point clickPos = e.getPoint();
-				Ship theShip = null;
-				for (Ship ship : ships) {
-					if (ship.pointOnShip(clickPos.x, clickPos.y)) {
-						theShip = ship;
-						break;
-					}
-				}
-				
-				if (theShip != null) {
-					// The player is clicking on theShip
-					if (theShip.isMoving()) {
-						// Reward the player with points
-						int pointsGain = (int) (PER_SHIP_POINTS * (1 + theShip.getNumLinks()));
-						scoreManager.gainScore(pointsGain);
-						
-						// Destroy it if it is moving (not stationary)
-						theShip.dispose();
-						
-						// Display the points display
-						EffectManager.getEffectManager().addEffect(
-								new PointsDisplay(theShip.getX(), theShip.getY(), 
-										Integer.toString(pointsGain), Color.CYAN));
-						
-						// Remove the ship from the list
-						ships.remove(theShip);
-					}
-				}
-			}
-		});
+		play(); // Start the game running
+	}
+	
+	/**
+	 * Sets up the panel, and creates the loop which runs the game in its world
+	 * @param activeRendering Whether the game loop should draw the game itself, rather than asking Swing to
+	 * @param sManager The parent GameFrame's scoreManager
+	 */
+	private void init(boolean activeRendering, GameFrame.ScoreManager sManager) {
+		setPreferredSize(new Dimension(DEFAULT_WIDTH, DEFAULT_HEIGHT)); // Default size for the frame
+		setBackground(bgColor);
 		
+		// Start with the camera in the middle of the world
+		camera.setBounds(DEFAULT_WIDTH, DEFAULT_HEIGHT, world.getWidth(), world.getHeight());
+		camera.centerOn(world.getWidth() / 2, world.getHeight() / 2);
 		
-		play(); // Start the game running
+		// Save the score manager
+		scoreManager = sManager;
+		
+		// Swing doesn't need to repaint the panel if the game loop is drawing it
+		this.activeRendering = activeRendering;
+		setIgnoreRepaint(activeRendering);
+		
+		// Create the loop which will run the game
+		gameLoop = new GameLoop(world, this, TICK_RATE, FRAME_RATE);
+		
+		// Listen to the player
+		controller = new GameController(this, world, camera, profilerOverlay, scoreManager);
+	}
+	
+	/**
+	 * Redraws the panel after the camera has moved.
+	 * The game loop redraws the panel itself when it is running with active rendering.
+	 */
+	public void repaintCamera() {
+		if (!activeRendering || !isRunning())
+			repaint();
+	}
+	
+	/**
+	 * Redraws the panel after the selected rectangle has changed.
+	 * The game loop redraws the panel itself when it is using active rendering.
+	 */
+	public void repaintSelection() {
+		if (!activeRendering)
+			repaint();
+	}
+	
+	/**
+	 * Starts recording the game into a new file in the RECORDING_FOLDER, named after the current time
+	 * @param seed The seed which the world's Random object was created with
+	 */
+	private void startRecording(long seed) {
+		String name = "session-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + ".rec";
+		Path path = Paths.get(RECORDING_FOLDER, name);
+		
+		try {
+			Files.createDirectories(path.getParent());
+			world.startRecording(path, seed);
+		} catch (IOException e) {
+			// Non-essential - just continue without recording
+			JOptionPane.showMessageDialog(null, 
+					"The game was unable to create the recording " + path + ".\n"
+					+ "The game will not be recorded.",
+					"Recording Warning",
+					JOptionPane.WARNING_MESSAGE);
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Saves a snapshot of the game to a file, so that it can be resumed later
+	 * @param path The file to save to
+	 * @throws IOException If the file can't be written
+	 */
+	public void save(Path path) throws IOException {
+		synchronized (world) {
+			Snapshot.save(world, path);
+		}
+	}
+	
+	/**
+	 * Stops recording the game, writing the current life and score to the end of the recording
+	 */
+	public void endRecording() {
+		synchronized (world) {
+			world.endRecording();
+		}
+	}
+	
+	/**
+	 * @return The world which is being played in
+	 */
+	public World getWorld() {
+		return world;
 	}
 	
 	/**
 	 * @return Whether or not the game is currently running
 	 */
 	public boolean isRunning() {
-		return timer.isRunning();
+		return gameLoop.isRunning();
 	}
 	
 	/**
 	 * Pauses the game - no effect if game is already paused
 	 */
 	public void pause() {
-		timer.stop();
+		gameLoop.stop();
 	}
 	
 	/**
 	 * Resumes the game - no effect if the game is already running
 	 */
 	public void play() {
-		timer.start();
-		lastTime = System.currentTimeMillis();  // Don't include time when paused in delta calculations
+		gameLoop.start();
 	}
 	
 	/**
-	 * Spawn a ship at a random point on the screen
+	 * Called by the game loop after stepping the world, to draw it
+	 * @param alpha How far between the previous step and the next step to draw the ships, between 0 and 1
 	 */
-	private void spawnShip() {
-		for (int trial = 0; trial < MAX_SPAWN_TRIALS; trial++) {
-			int x;
-			int y;
-			try {
-				x = random.nextInt(getWidth() - Ship.BASE_HALF_DIM) + Ship.BASE_HALF_DIM;
-				y = random.nextInt(getHeight() - Ship.BASE_HALF_DIM) + Ship.BASE_HALF_DIM;
-			} catch (IllegalArgumentException e) {
-				return;
-			}
-			
-			int dir = random.nextInt(4); // Random int in [0, 4) = [0, 3]
-			int type = random.nextInt(2); // Random int in [0, 2) = [0, 1]
-			
-			// Create the ship
-			Ship ship = new Ship(x, y, dir, type, this);
-			
-			boolean badShip = false;
-			
-			for (Ship other : ships) {
-				if (Ship.areColliding(ship, other)) {
-					badShip = true;
-					break; // The ship is colliding with another ship, better try again!
-				}
+	public void render(double alpha) {
+		this.alpha = alpha;
+		
+		if (!activeRendering || !renderActive())
+			repaint(); // Let Swing draw the panel
+	}
+	
+	/**
+	 * Draws a frame into the back buffer, and then copies it to the screen.
+	 * Called from the game loop's thread when using active rendering.
+	 * @return Whether or not the frame was drawn - false if the panel is not yet on the screen
+	 */
+	private boolean renderActive() {
+		int width = getWidth();
+		int height = getHeight();
+		if (width <= 0 || height <= 0)
+			return false;
+		
+		do {
+			// Create the back buffer if it is the wrong size or has become unusable
+			if (backBuffer == null || backBuffer.getWidth() != width || backBuffer.getHeight() != height
+					|| backBuffer.validate(getGraphicsConfiguration()) == VolatileImage.IMAGE_INCOMPATIBLE) {
+				backBuffer = createVolatileImage(width, height);
+				if (backBuffer == null)
+					return false;
 			}
 			
-			if (badShip)
-				continue;
+			Graphics2D g = backBuffer.createGraphics();
+			paintFrame(g, width, height);
+			g.dispose();
 			
-			// Not colliding with any of the ships, return
-			ships.add(ship);
-			return;
-		}
+			Graphics screen = getGraphics();
+			if (screen == null)
+				return false;
+			screen.drawImage(backBuffer, 0, 0, null);
+			screen.dispose();
+		} while (backBuffer.contentsLost());
 		
-		System.out.println("WARNING: MAX_SPAWN_TRIALS Exceeded!");
+		// Make sure that the frame is shown now, rather than when the window system gets around to it
+		Toolkit.getDefaultToolkit().sync();
+		return true;
 	}
-
+	
 	/**
-	 * Called approximately every 10ms by the timer 'timer'
-	 * 
-	 * @param delta The time in millis since the last update
+	 * Draws the background and the world
+	 * @param g The graphics context
+	 * @param width The width of the area to draw
+	 * @param height The height of the area to draw
 	 */
-	public void tick(long delta) {
-		// Increment spawntime
-		spawnTime += delta;
+	private void paintFrame(Graphics2D g, int width, int height) {
+		long frameStart = Profiler.start();
 		
-		if (spawnTime >= spawnRate) {
-			// Spawn a ship
-			spawnShip();
-			spawnTime -= spawnRate;
+		// The background never changes, so it is copied from an image rather than drawn again
+		synchronized (this) {
+			if (background == null || background.getWidth() != width || background.getHeight() != height)
+				background = createBackground(width, height);
+			g.drawImage(background, 0, 0, null);
 		}
+		Profiler.lap(Profiler.PAINT_BACKGROUND, frameStart);
 		
-		// Animate the effects
-		EffectManager.getEffectManager().tick(delta);
-		
-		// Check for collisions between the ships
-		for (int i = 0; i < ships.size(); i++) {
-			Ship a = ships.get(i);
+		// Draw the world through the camera, skipping everything outside of the view
+		synchronized (world) {
+			AffineTransform screenTransform = g.getTransform();
+			double minX, minY, maxX, maxY;
+			synchronized (camera) {
+				minX = camera.getMinX();
+				minY = camera.getMinY();
+				maxX = camera.getMaxX();
+				maxY = camera.getMaxY();
+				camera.apply(g);
+			}
+			
+			world.paint(g, alpha, minX, minY, maxX, maxY);
+			g.setTransform(screenTransform);
 			
-			// Only try ships with indexes greater than i
-			for (int j = i + 1; j < ships.size(); j++) {
-				Ship b = ships.get(j);
-				
-				if (Ship.areColliding(a, b)) {
-					// The ships are colliding, link them and bounce them off of eachother
-					a.bounce();
-					b.bounce();
-					
-					// Move the ships apart from eachother
-					a.tick(3 * 20 * Ship.HALF_DIM_SCALING);
-					b.tick(3 * 20 * Ship.HALF_DIM_SCALING);
-					
-					// Finally, link the two together
-					a.link(b);
-				}
+			// Show where the edges of a large arena are
+			if (world.isLargeArena()) {
+				double zoom = camera.getZoom();
+				g.setColor(ARENA_EDGE);
+				g.drawRect((int) Math.round(-minX * zoom), (int) Math.round(-minY * zoom), 
+						(int) Math.round(world.getWidth() * zoom), (int) Math.round(world.getHeight() * zoom));
 			}
 		}
+		Profiler.lap(Profiler.FRAME, frameStart);
 		
-		// Update all of the ships
-		for (Ship ship : ships) {
-			ship.tick(delta);
+		// Draw the rectangle which the player is selecting
+		Rectangle selection = controller.getSelection();
+		if (selection != null) {
+			g.setColor(SELECTION_FILL);
+			g.fill(selection);
+			g.setColor(SELECTION_EDGE);
+			g.draw(selection);
 		}
 		
-		// Do damage
-		double damage = 0;
-		for (Ship ship : ships) {
-			// Damage scales exponentially
-			damage += Math.pow(2, ship.getNumLinks()) * PER_MILI_DAMAGE;
+		profilerOverlay.paint(g);
+	}
+	
+	/**
+	 * Draws the background color and image into an image which can be copied to the screen quickly
+	 * @param width The width of the image
+	 * @param height The height of the image
+	 * @return The image
+	 */
+	private BufferedImage createBackground(int width, int height) {
+		BufferedImage image = getGraphicsConfiguration()
+				.createCompatibleImage(Math.max(width, 1), Math.max(height, 1), Transparency.OPAQUE);
+		
+		Graphics2D g = image.createGraphics();
+		g.setColor(bgColor);
+		g.fillRect(0, 0, width, height);
+		g.drawImage(SpriteManager.getSprite(SpriteManager.NEXUS_BG), (width - BG_WIDTH)/2, (height - BG_HEIGHT)/2, null);
+		g.dispose();
+		
+		return image;
+	}
+	
+	/**
+	 * Updates the score display with the world's current life and score.
+	 * Must be called from the Event Dispatch Thread.
+	 */
+	public void updateDisplay() {
+		double health;
+		double score;
+		int largestCluster;
+		synchronized (world) {
+			health = world.getHealth();
+			score = world.getScore();
+			largestCluster = world.getClusterIndex().getLargestSize();
 		}
-		scoreManager.doDamage(damage);
+		
+		// Don't report the game as over again once it has stopped
+		if (isRunning())
+			scoreManager.updateDisplay(health, score, largestCluster);
 	}
 	
 	/**
@@ -261,24 +401,7 @@ public class GamePanel extends JPanel {
 	 */
 	@Override
 	public void paintComponent(Graphics g) {
-		super.paintComponent(g);
-		
-		Graphics2D g2 = (Graphics2D) g;
-		
-		// Draw the background image
-		g2.drawImage(SpriteManager.getSprite(SpriteManager.NEXUS_BG), (getWidth() - 800)/2, (getHeight() - 600)/2, 800, 600, null);
-		
-		// Draw the links
-		for (Ship ship : ships) {
-			ship.paint_links(g2);
-		}
-		
-		// Draw the effects
-		EffectManager.getEffectManager().paintEffects(g2);
-		
-		// Draw the ships themselves
-		for (Ship ship : ships) {
-			ship.paint(g2);
-		}
+		// The background covers the whole panel, so there is no need to clear it first
+		paintFrame((Graphics2D) g, getWidth(), getHeight());
 	}
 }
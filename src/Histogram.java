@@ -0,0 +1,126 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class counts how often values of different sizes are recorded, so that percentiles can be estimated.
+ * Each power of two is split into SUB_BUCKETS buckets, so every estimate is within 1/SUB_BUCKETS of the real value.
+ * Values are recorded without locking, so any number of threads can record into the same histogram.
+ *
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class Histogram {
+	
+	// The number of bits of each value after its highest bit which choose its bucket
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	
+	// Enough buckets for any positive long
+	private static final int NUM_BUCKETS = 64 * SUB_BUCKETS;
+	
+	// The number of values in each bucket
+	private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+	
+	// The number of values recorded, and the largest of them
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * Records a value
+	 * @param value The value, which is treated as 0 if it is negative
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+		
+		buckets.incrementAndGet(bucket(value));
+		count.incrementAndGet();
+		
+		long oldMax;
+		while (value > (oldMax = max.get()) && !max.compareAndSet(oldMax, value));
+	}
+	
+	/**
+	 * Removes every value from the histogram.
+	 * Values which are recorded at the same time may or may not be removed.
+	 */
+	public void reset() {
+		for (int i = 0; i < NUM_BUCKETS; i++)
+			buckets.set(i, 0);
+		count.set(0);
+		max.set(0);
+	}
+	
+	/**
+	 * @return The number of values which have been recorded
+	 */
+	public long getCount() {
+		return count.get();
+	}
+	
+	/**
+	 * @return The largest value which has been recorded, or 0 if there are none
+	 */
+	public long getMax() {
+		return max.get();
+	}
+	
+	/**
+	 * Estimates a percentile of the recorded values
+	 * @param percentile The percentile, between 0 and 100
+	 * @return The largest value which could be in the bucket containing the percentile,
+	 * but never more than the largest value.  0 if no values have been recorded.
+	 */
+	public long getPercentile(double percentile) {
+		// Count the buckets themselves, as they may be recorded into while they are counted
+		long total = 0;
+		long[] counts = new long[NUM_BUCKETS];
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		
+		if (total == 0)
+			return 0;
+		
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank)
+				return Math.min(upperBound(i), getMax());
+		}
+		
+		return getMax();
+	}
+	
+	/**
+	 * @param value A value, which must not be negative
+	 * @return The bucket which counts the value
+	 */
+	private static int bucket(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+	
+	/**
+	 * @param bucket A bucket
+	 * @return The largest value which is counted by the bucket
+	 */
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		
+		int shift = bucket / SUB_BUCKETS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		long bound = ((SUB_BUCKETS + sub + 1) << shift) - 1;
+		
+		// The last bucket of the largest power of two goes up to Long.MAX_VALUE
+		return bound < 0 ? Long.MAX_VALUE : bound;
+	}
+	
+}
@@ -0,0 +1,102 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+
+/**
+ * This class draws the links between ships.
+ * Links are collected into a single path for each width of line, so that each width only needs to be drawn once.
+ * The paths and strokes are reused between frames.
+ * Links which are entirely outside of the area being drawn are not added to the paths.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class LinkRenderer {
+	
+	// The color of the links.
+	// Each link used to be drawn twice with an alpha of 50, once from each ship, which looks the same as drawing it once with 90.
+	private static final Color linkColor = new Color(255, 156, 255, 90);
+	
+	// The widths of the links pulsate between MIN_WIDTH and MIN_WIDTH + NUM_WIDTHS - 1
+	private static final int MIN_WIDTH = 5;
+	private static final int NUM_WIDTHS = 15;
+	
+	// The time in millis which each width of the pulse lasts
+	private static final int PULSE_TIME = 40;
+	
+	// The strokes for each width of link
+	private static final BasicStroke[] strokes = new BasicStroke[NUM_WIDTHS];
+	static {
+		for (int i = 0; i < NUM_WIDTHS; i++)
+			strokes[i] = new BasicStroke(MIN_WIDTH + i);
+	}
+	
+	// The links of each width which have been added since the last time they were drawn
+	private Path2D.Float[] paths = new Path2D.Float[NUM_WIDTHS];
+	
+	// The area being drawn, widened by half of the widest link
+	private double minX = Double.NEGATIVE_INFINITY;
+	private double minY = Double.NEGATIVE_INFINITY;
+	private double maxX = Double.POSITIVE_INFINITY;
+	private double maxY = Double.POSITIVE_INFINITY;
+	
+	/**
+	 * Creates a LinkRenderer
+	 */
+	public LinkRenderer() {
+		for (int i = 0; i < NUM_WIDTHS; i++)
+			paths[i] = new Path2D.Float();
+	}
+	
+	/**
+	 * Changes the area being drawn.  Links which are added afterwards are ignored if they are entirely outside of it.
+	 * @param minX The X coordinate of the left side of the area
+	 * @param minY The Y coordinate of the top of the area
+	 * @param maxX The X coordinate of the right side of the area
+	 * @param maxY The Y coordinate of the bottom of the area
+	 */
+	public void setView(double minX, double minY, double maxX, double maxY) {
+		double margin = (MIN_WIDTH + NUM_WIDTHS) / 2;
+		
+		this.minX = minX - margin;
+		this.minY = minY - margin;
+		this.maxX = maxX + margin;
+		this.maxY = maxY + margin;
+	}
+	
+	/**
+	 * Adds a link to be drawn the next time paint() is called
+	 * @param lifespan The lifespan of the ship which the link belongs to, which decides the width of the link
+	 * @param x1 The X coordinate of the first ship
+	 * @param y1 The Y coordinate of the first ship
+	 * @param x2 The X coordinate of the second ship
+	 * @param y2 The Y coordinate of the second ship
+	 */
+	public void addLink(long lifespan, int x1, int y1, int x2, int y2) {
+		// Skip the link if its bounding box is outside of the area being drawn
+		if (Math.max(x1, x2) < minX || Math.min(x1, x2) > maxX || Math.max(y1, y2) < minY || Math.min(y1, y2) > maxY)
+			return;
+		
+		Path2D.Float path = paths[(int) ((lifespan / PULSE_TIME) % NUM_WIDTHS)];
+		path.moveTo(x1, y1);
+		path.lineTo(x2, y2);
+	}
+	
+	/**
+	 * Draws all of the links which have been added, and then forgets them
+	 * @param g The graphics context
+	 */
+	public void paint(Graphics2D g) {
+		g.setColor(linkColor);
+		
+		for (int i = 0; i < NUM_WIDTHS; i++) {
+			if (paths[i].getCurrentPoint() == null)
+				continue; // There are no links of this width
+			
+			g.setStroke(strokes[i]);
+			g.draw(paths[i]);
+			paths[i].reset();
+		}
+	}
+}
@@ -5,14 +5,19 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Font;
+import java.awt.Graphics;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
 
@@ -25,10 +30,11 @@ import javax.swing.JTextField;
  */
 public class MainMenu extends JFrame {
 	
-	private static final int INSANE_SPAWN_RATE= 250;
-	private static final int HARD_SPAWN_RATE = 500;
-	private static final int MEDIUM_SPAWN_RATE = 1000;
-	private static final int EASY_SPAWN_RATE = 2000;
+	// The time in millis between each ship being spawned at each difficulty
+	public static final int INSANE_SPAWN_RATE= 250;
+	public static final int HARD_SPAWN_RATE = 500;
+	public static final int MEDIUM_SPAWN_RATE = 1000;
+	public static final int EASY_SPAWN_RATE = 2000;
 
 	private static final int DEFAULT_VERTICAL_PADDING = 20;
 
@@ -38,6 +44,18 @@ public class MainMenu extends JFrame {
 	// The name of the nexus
 	private JTextField nexusName;
 	
+	// Whether or not the game is drawn with active rendering, rather than by Swing
+	private JCheckBox activeRendering;
+	
+	// Whether or not the game is recorded, so that it can be replayed
+	private JCheckBox record;
+	
+	// Whether or not the game is played in a large arena, which is explored with the camera
+	private JCheckBox largeArena;
+	
+	// Whether or not the menu has been drawn yet
+	private boolean drawn = false;
+	
 	public MainMenu() {
 		super("Nexus Defender - Main Menu");
 	
@@ -104,6 +122,57 @@ public class MainMenu extends JFrame {
 		playI.setBackground(Color.RED);
 		buttonsPanel.add(playI);
 		
+		// Create the button which resumes a saved game
+		JButton resume = new JButton("RESUME SAVED GAME");
+		resume.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				World world;
+				try {
+					world = Snapshot.load(GameFrame.SAVE_FILE);
+				} catch (IOException ex) {
+					JOptionPane.showMessageDialog(null, 
+							"There is no saved game which can be resumed. \n"
+							+ ex.getMessage(),
+							"Resume Error", JOptionPane.ERROR_MESSAGE);
+					return;
+				}
+				
+				if (!awaitSprites())
+					return;
+				
+				// Hide this window
+				setVisible(false);
+				
+				// Create the game's window and display it
+				new GameFrame(MainMenu.this, nexusName.getText(), world, activeRendering.isSelected())
+						.setVisible(true);
+			}
+		});
+		resume.setBackground(Color.LIGHT_GRAY);
+		buttonsPanel.add(resume);
+		
+		// Create the check box which chooses how the game is drawn
+		activeRendering = new JCheckBox("Active Rendering", true);
+		activeRendering.setBackground(Color.BLACK);
+		activeRendering.setForeground(Color.WHITE);
+		activeRendering.setHorizontalAlignment(JCheckBox.CENTER);
+		buttonsPanel.add(activeRendering);
+		
+		// Create the check box which chooses whether the game is recorded
+		record = new JCheckBox("Record Game", false);
+		record.setBackground(Color.BLACK);
+		record.setForeground(Color.WHITE);
+		record.setHorizontalAlignment(JCheckBox.CENTER);
+		buttonsPanel.add(record);
+		
+		// Create the check box which chooses whether the game is played in a large arena
+		largeArena = new JCheckBox("Large Arena", false);
+		largeArena.setBackground(Color.BLACK);
+		largeArena.setForeground(Color.WHITE);
+		largeArena.setHorizontalAlignment(JCheckBox.CENTER);
+		buttonsPanel.add(largeArena);
+		
 		// Create the padding below the play game buttons
 		JPanel basePadding = new JPanel();
 		basePadding.setBackground(Color.BLACK);
@@ -128,6 +197,41 @@ public class MainMenu extends JFrame {
 		setLocationRelativeTo(null); // Center in screen
 	}
 	
+	/**
+	 * Paints the main menu, and reports how long the game took to start the first time that it is drawn
+	 * @param g The graphics context
+	 */
+	@Override
+	public void paint(Graphics g) {
+		super.paint(g);
+		
+		if (!drawn) {
+			drawn = true;
+			System.out.printf("Startup: main menu first drawn %.1f ms after main() started, %d ms after the JVM started%n", 
+					(System.nanoTime() - Assn4.START_TIME) / 1e6, ManagementFactory.getRuntimeMXBean().getUptime());
+		}
+	}
+	
+	/**
+	 * Waits for the game's sprites to finish loading in the background, 
+	 * telling the player if they couldn't be loaded
+	 * @return Whether or not the sprites were loaded
+	 */
+	private boolean awaitSprites() {
+		try {
+			SpriteManager.awaitLoaded();
+			return true;
+		} catch (IOException e) {
+			JOptionPane.showMessageDialog(null, 
+					"The game was unable to load its graphical assets. \n"
+					+ "Make certain that you are running it in the same folder as the 'assets' folder, \n"
+					+ "or that 'assets.pack' is on the classpath.",
+					"Asset Loading Error",
+					JOptionPane.ERROR_MESSAGE);
+			return false;
+		}
+	}
+	
 	/**
 	 * A listener to be attached to a play game button.
 	 * Causes the game to be started with a specified difficulty
@@ -153,12 +257,15 @@ public class MainMenu extends JFrame {
 		 */
 		@Override
 		public void actionPerformed(ActionEvent e) {
+			if (!awaitSprites())
+				return;
+			
 			// Hide this window
 			setVisible(false);
 			
 			// Create the game's window and display it
-			new GameFrame(MainMenu.this, nexusName.getText(), spawnRate)
-					.setVisible(true);
+			new GameFrame(MainMenu.this, nexusName.getText(), spawnRate, largeArena.isSelected(), 
+					activeRendering.isSelected(), record.isSelected()).setVisible(true);
 		}
 		
 	}
@@ -0,0 +1,77 @@
+import java.util.Arrays;
+
+/**
+ * This class is a growable list of pairs of ship slots.
+ * Each pair is packed into a single long, so that the pairs can be sorted by their first and then their second slot.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class PairBuffer {
+	
+	// The pairs, with the first slot in the upper 32 bits
+	private long[] pairs = new long[16];
+	private int size = 0;
+	
+	/**
+	 * @return The number of pairs in the buffer
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Removes every pair from the buffer
+	 */
+	public void clear() {
+		size = 0;
+	}
+	
+	/**
+	 * Adds a pair to the end of the buffer
+	 * @param first The first slot
+	 * @param second The second slot
+	 */
+	public void add(int first, int second) {
+		if (size == pairs.length)
+			pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+		
+		pairs[size++] = ((long) first << 32) | second;
+	}
+	
+	/**
+	 * Adds every pair in 'other' to the end of the buffer
+	 * @param other The buffer to add the pairs from
+	 */
+	public void addAll(PairBuffer other) {
+		if (size + other.size > pairs.length)
+			pairs = Arrays.copyOf(pairs, Math.max(size + other.size, 2 * pairs.length));
+		
+		System.arraycopy(other.pairs, 0, pairs, size, other.size);
+		size += other.size;
+	}
+	
+	/**
+	 * Sorts the pairs by their first slot, and then by their second slot
+	 */
+	public void sort() {
+		Arrays.sort(pairs, 0, size);
+	}
+	
+	/**
+	 * @param n The number of the pair, between 0 and size()
+	 * @return The first slot of the pair
+	 */
+	public int getFirst(int n) {
+		return (int) (pairs[n] >>> 32);
+	}
+	
+	/**
+	 * @param n The number of the pair, between 0 and size()
+	 * @return The second slot of the pair
+	 */
+	public int getSecond(int n) {
+		return (int) pairs[n];
+	}
+	
+}
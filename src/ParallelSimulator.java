@@ -0,0 +1,210 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class runs the parts of a world's step which can be split up on a ForkJoinPool.
+ * Ships are moved in ranges of slots, and colliding ships are found in bands of rows of the ShipGrid.
+ * Each band collects its pairs into its own buffer.  The world then resolves the pairs on one thread,
+ * in the same order as a world without a simulator, so the game is the same no matter how many threads found them.
+ * The pools are shared between every simulator with the same number of threads, and their threads are daemons,
+ * so simulators can be created and dropped freely without being shut down.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class ParallelSimulator {
+	
+	// The fewest ships which are moved by a single task
+	private static final int MIN_SHIPS_PER_TASK = 512;
+	
+	// The number of bands of rows which each thread searches for collisions, so that busy bands can be balanced out
+	private static final int BANDS_PER_THREAD = 4;
+	
+	// The shared pools, by their number of threads
+	private static final Map<Integer, ForkJoinPool> pools = new HashMap<Integer, ForkJoinPool>();
+	
+	// The pool which runs the tasks
+	private ForkJoinPool pool;
+	
+	// The pairs found by each band, and all of the pairs found in the last step
+	private PairBuffer[] bandPairs;
+	private PairBuffer pairs = new PairBuffer();
+	
+	/**
+	 * Creates a ParallelSimulator
+	 * @param parallelism The number of threads to use
+	 */
+	public ParallelSimulator(int parallelism) {
+		pool = getPool(parallelism);
+		
+		bandPairs = new PairBuffer[parallelism * BANDS_PER_THREAD];
+		for (int i = 0; i < bandPairs.length; i++)
+			bandPairs[i] = new PairBuffer();
+	}
+	
+	/**
+	 * @return The number of threads used
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+	
+	/**
+	 * Finds every pair of colliding ships in a grid
+	 * @param grid The grid, which must have been rebuilt for the current positions of the ships
+	 * @return The pairs, with the lower slot first.  The buffer is reused by the next call.
+	 */
+	public PairBuffer findPairs(ShipGrid grid) {
+		int numBands = Math.min(bandPairs.length, grid.getRows());
+		pool.invoke(new FindPairsTask(grid, 0, numBands, numBands));
+		
+		pairs.clear();
+		for (int band = 0; band < numBands; band++)
+			pairs.addAll(bandPairs[band]);
+		
+		return pairs;
+	}
+	
+	/**
+	 * Updates the position etc. of every ship in a store
+	 * @param store The store
+	 * @param delta The time in millis since the last tick
+	 * @param width The width of the world
+	 * @param height The height of the world
+	 */
+	public void tickAll(ShipStore store, long delta, int width, int height) {
+		pool.invoke(new TickTask(store, delta, width, height, 0, store.size()));
+	}
+	
+	/**
+	 * Gets the shared pool with a number of threads, creating it the first time it is needed
+	 * @param parallelism The number of threads
+	 * @return The pool
+	 */
+	private static synchronized ForkJoinPool getPool(int parallelism) {
+		ForkJoinPool pool = pools.get(parallelism);
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+			pools.put(parallelism, pool);
+		}
+		
+		return pool;
+	}
+	
+	/**
+	 * The FindPairsTask class finds the colliding ships in a range of bands, 
+	 * splitting it in half until there is one band left
+	 * 
+	 * @author Michael Layzell
+	 *
+	 */
+	private class FindPairsTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		// The grid to search
+		private ShipGrid grid;
+		
+		// The range of bands to search, and the number of bands which the grid is split into
+		private int firstBand;
+		private int lastBand;
+		private int numBands;
+		
+		/**
+		 * Creates a FindPairsTask
+		 * @param grid The grid to search
+		 * @param firstBand The first band to search
+		 * @param lastBand One past the last band to search
+		 * @param numBands The number of bands which the grid is split into
+		 */
+		public FindPairsTask(ShipGrid grid, int firstBand, int lastBand, int numBands) {
+			this.grid = grid;
+			this.firstBand = firstBand;
+			this.lastBand = lastBand;
+			this.numBands = numBands;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (lastBand - firstBand > 1) {
+				int middle = (firstBand + lastBand) / 2;
+				invokeAll(new FindPairsTask(grid, firstBand, middle, numBands), 
+						new FindPairsTask(grid, middle, lastBand, numBands));
+				return;
+			}
+			
+			// Split the rows evenly between the bands
+			int rows = grid.getRows();
+			int minRow = firstBand * rows / numBands;
+			int maxRow = (firstBand + 1) * rows / numBands - 1;
+			
+			PairBuffer buffer = bandPairs[firstBand];
+			buffer.clear();
+			grid.findPairs(minRow, maxRow, buffer);
+		}
+	}
+	
+	/**
+	 * The TickTask class moves the ships in a range of slots, splitting it in half until it is small enough
+	 * 
+	 * @author Michael Layzell
+	 *
+	 */
+	private static class TickTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		// The ships to move
+		private ShipStore store;
+		
+		// The length of the tick, and the bounds of the world
+		private long delta;
+		private int width;
+		private int height;
+		
+		// The range of slots to move
+		private int first;
+		private int last;
+		
+		/**
+		 * Creates a TickTask
+		 * @param store The store which holds the ships
+		 * @param delta The time in millis since the last tick
+		 * @param width The width of the world
+		 * @param height The height of the world
+		 * @param first The first slot to move
+		 * @param last One past the last slot to move
+		 */
+		public TickTask(ShipStore store, long delta, int width, int height, int first, int last) {
+			this.store = store;
+			this.delta = delta;
+			this.width = width;
+			this.height = height;
+			this.first = first;
+			this.last = last;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (last - first > MIN_SHIPS_PER_TASK) {
+				int middle = (first + last) / 2;
+				invokeAll(new TickTask(store, delta, width, height, first, middle), 
+						new TickTask(store, delta, width, height, middle, last));
+				return;
+			}
+			
+			// Each ship only changes its own slot, so the ranges can be moved at the same time
+			for (int slot = first; slot < last; slot++)
+				store.tick(slot, delta, width, height);
+		}
+	}
+	
+}
@@ -2,28 +2,49 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
 
 
 
 /**
  * The PointsDisplay class represents a points display which appears when ships are distroyed
  * It floats upwards and disappears after a second.
+ * The text for each number of points is drawn into an image once, and the image is reused by every points display.
  * 
  * @author Michael Layzell
  * Made for CISC 124, Winter 2013
  */
 public class PointsDisplay implements EffectManager.Effect {
-
+	
 	// The speed at which the points float upwards
 	private static final double FLOAT_SPEED = -0.04;
 	
 	// The total life of the points display
 	private static final int TOTAL_LIFE = 1000;
 	
+	// The number of bytes which write() writes
+	public static final int SNAPSHOT_SIZE = 8 + 8 + 4 + 4 + 8;
+	
+	// The font which the points are displayed in
+	private static final Font font = new Font(Font.MONOSPACED, Font.BOLD, 24);
+	
+	// The measurements of the font, which are found the first time that they are needed
+	private static FontMetrics fontMetrics;
+	
+	// The images of the text for each number of points, for each color
+	private static Map<Color, BufferedImage[]> textImages = new HashMap<Color, BufferedImage[]>();
+	
 	// The display features of the points display
-	private String text;
+	private int points;
 	private Color color;
 	
+	// The image of the text, which is found the first time that the points display is drawn
+	private BufferedImage textImage;
+	
 	// The x and y coordinates of the points display
 	private double x;
 	private double y;
@@ -36,15 +57,57 @@ public class PointsDisplay implements EffectManager.Effect {
 	 * Creates a points display which will float upwards on the display and then disappear
 	 * @param x The starting x-coordinate of the points display
 	 * @param y The starting y-coordinate of the points display
-	 * @param text The text of the points display
+	 * @param points The number of points to display
 	 * @param color The color of the points display
 	 */
-	public PointsDisplay(double x, double y, String text, Color color) {
-		this.text = text;
+	public PointsDisplay(double x, double y, int points, Color color) {
+		reset(x, y, points, color);
+	}
+	
+	/**
+	 * Restarts the points display, so that a points display which is done can be reused
+	 * @param x The starting x-coordinate of the points display
+	 * @param y The starting y-coordinate of the points display
+	 * @param points The number of points to display
+	 * @param color The color of the points display
+	 */
+	public void reset(double x, double y, int points, Color color) {
+		this.points = points;
 		this.color = color;
+		this.textImage = null;
 		
 		this.x = x;
 		this.y = y;
+		
+		lifespan = 0;
+		done = false;
+	}
+	
+	/**
+	 * Writes the position, points, color and lifespan of the points display to a buffer
+	 * @param buffer The buffer to write to
+	 */
+	public void write(ByteBuffer buffer) {
+		buffer.putDouble(x);
+		buffer.putDouble(y);
+		buffer.putInt(points);
+		buffer.putInt(color.getRGB());
+		buffer.putLong(lifespan);
+	}
+	
+	/**
+	 * Restarts the points display where write() left it
+	 * @param buffer The buffer to read from
+	 */
+	public void read(ByteBuffer buffer) {
+		double x = buffer.getDouble();
+		double y = buffer.getDouble();
+		int points = buffer.getInt();
+		Color color = new Color(buffer.getInt(), true);
+		reset(x, y, points, color);
+		
+		lifespan = buffer.getLong();
+		done = lifespan > TOTAL_LIFE;
 	}
 	
 	/*
@@ -59,25 +122,36 @@ public class PointsDisplay implements EffectManager.Effect {
 		if (lifespan > TOTAL_LIFE)
 			done = true;
 	}
-
+	
 	/*
 	 * (non-Javadoc)
 	 * @see EffectManager.Effect#paint(java.awt.Graphics2D)
 	 */
 	@Override
 	public void paint(Graphics2D g) {
-		// Set the font correctly
-		g.setColor(color);
-		g.setFont(new Font(Font.MONOSPACED, Font.BOLD, 24));
-		FontMetrics fontMetrics = g.getFontMetrics();
+		// The image is only needed when drawing, so that points displays can be simulated without a display
+		if (textImage == null)
+			textImage = getTextImage(points, color);
 		
-		// Get the width of the string
-		int strWidth = fontMetrics.stringWidth(text);
+		// Draw the text, centered on x, with its baseline at y
+		g.drawImage(textImage, (int) x - textImage.getWidth() / 2, (int) y - fontMetrics.getAscent(), null);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see EffectManager.Effect#intersects(double, double, double, double)
+	 */
+	@Override
+	public boolean intersects(double minX, double minY, double maxX, double maxY) {
+		// This is only called when drawing, so the image of the text can be found
+		if (textImage == null)
+			textImage = getTextImage(points, color);
 		
-		// Draw the string
-		g.drawString(text, (int) x - strWidth / 2, (int) y);
+		double left = x - textImage.getWidth() / 2;
+		double top = y - fontMetrics.getAscent();
+		return left + textImage.getWidth() >= minX && left <= maxX && top + textImage.getHeight() >= minY && top <= maxY;
 	}
-
+	
 	/*
 	 * (non-Javadoc)
 	 * @see EffectManager.Effect#done()
@@ -86,4 +160,47 @@ public class PointsDisplay implements EffectManager.Effect {
 	public boolean done() {
 		return done;
 	}
+	
+	/**
+	 * Gets the image of the text for a number of points, drawing it if it hasn't been drawn yet
+	 * @param points The number of points
+	 * @param color The color of the text
+	 * @return The image of the text
+	 */
+	private static BufferedImage getTextImage(int points, Color color) {
+		if (fontMetrics == null) {
+			// Measure the font using a throwaway image
+			Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+			fontMetrics = g.getFontMetrics(font);
+			g.dispose();
+		}
+		
+		BufferedImage[] images = textImages.get(color);
+		if (images == null || images.length <= points) {
+			// Make room for this number of points
+			BufferedImage[] newImages = new BufferedImage[Math.max(points + 1, 2 * (images == null ? 0 : images.length))];
+			if (images != null)
+				System.arraycopy(images, 0, newImages, 0, images.length);
+			
+			images = newImages;
+			textImages.put(color, images);
+		}
+		
+		if (images[points] == null) {
+			String text = Integer.toString(points);
+			
+			BufferedImage image = SpriteManager.createCompatibleImage(Math.max(fontMetrics.stringWidth(text), 1), 
+					fontMetrics.getAscent() + fontMetrics.getDescent(), Transparency.TRANSLUCENT);
+			
+			Graphics2D g = image.createGraphics();
+			g.setColor(color);
+			g.setFont(font);
+			g.drawString(text, 0, fontMetrics.getAscent());
+			g.dispose();
+			
+			images[points] = image;
+		}
+		
+		return images[points];
+	}
 }
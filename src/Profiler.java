@@ -0,0 +1,384 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * This class measures how long each phase of a step and of drawing a frame takes.
+ * Each phase is timed with System.nanoTime() into a Histogram, so that its median, 99th percentile
+ * and longest times can be shown in the game's overlay, or read through JMX.
+ *
+ * The profiler is disabled by default.  While it is disabled, start() and lap() only read a flag,
+ * so the timed code costs almost nothing.  It can be enabled with -Dnexus.profile=true,
+ * with F3 in the game, or through JMX.
+ *
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class Profiler {
+	
+	// The phases of a step
+	public static final int STEP = 0;
+	public static final int SPAWN = 1;
+	public static final int EFFECTS = 2;
+	public static final int COLLISIONS = 3;
+	public static final int MOVEMENT = 4;
+	public static final int DAMAGE = 5;
+	
+	// The phases of drawing a frame
+	public static final int FRAME = 6;
+	public static final int PAINT_BACKGROUND = 7;
+	public static final int PAINT_LINKS = 8;
+	public static final int PAINT_EFFECTS = 9;
+	public static final int PAINT_SHIPS = 10;
+	
+	public static final int NUM_PHASES = 11;
+	
+	// The name of each phase.  The phases which make up a step or a frame are indented under it.
+	private static final String[] PHASE_NAMES = {
+		"step", " spawn", " effects", " collisions", " movement", " damage",
+		"frame", " background", " links", " effects", " ships" };
+	
+	// The name which the profiler is registered with JMX under
+	public static final String OBJECT_NAME = "NexusDefender:type=Profiler";
+	
+	// The number of nanoseconds in a microsecond and in a second
+	private static final double NANOS_PER_MICRO = 1e3;
+	private static final double NANOS_PER_SECOND = 1e9;
+	
+	// Whether or not the phases are being timed
+	private static volatile boolean enabled = Boolean.getBoolean("nexus.profile");
+	
+	// The times of each phase, in nanoseconds
+	private static final Histogram[] histograms = new Histogram[NUM_PHASES];
+	static {
+		for (int i = 0; i < NUM_PHASES; i++)
+			histograms[i] = new Histogram();
+	}
+	
+	// The number of ships, links and effects after the last step
+	private static volatile int numShips = 0;
+	private static volatile int numLinks = 0;
+	private static volatile int numEffects = 0;
+	private static volatile int numClusters = 0;
+	private static volatile int largestCluster = 0;
+	
+	// The number of bytes allocated by the game loop since the measurements were last cleared, and when that was
+	private static final AtomicLong allocatedBytes = new AtomicLong();
+	private static volatile long resetTime = System.nanoTime();
+	
+	/**
+	 * The Profiler only has static methods, so it can't be created
+	 */
+	private Profiler() {
+	}
+	
+	/**
+	 * @return Whether or not the phases are being timed
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Starts or stops timing the phases.  Starting clears every measurement.
+	 * @param enabled Whether or not to time the phases
+	 */
+	public static void setEnabled(boolean enabled) {
+		if (enabled && !Profiler.enabled)
+			reset();
+		
+		Profiler.enabled = enabled;
+	}
+	
+	/**
+	 * Clears every measurement
+	 */
+	public static void reset() {
+		for (Histogram histogram : histograms)
+			histogram.reset();
+		
+		allocatedBytes.set(0);
+		resetTime = System.nanoTime();
+	}
+	
+	/**
+	 * Starts timing a phase
+	 * @return The current time, or 0 if the profiler is disabled
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+	
+	/**
+	 * Finishes timing a phase.  The time which is returned can be used to start timing the next phase.
+	 * @param phase The phase which has finished
+	 * @param start The time returned by start() or lap() when the phase started
+	 * @return The current time, or 0 if the phase wasn't being timed
+	 */
+	public static long lap(int phase, long start) {
+		if (start == 0)
+			return 0;
+		
+		long now = System.nanoTime();
+		histograms[phase].record(now - start);
+		return now;
+	}
+	
+	/**
+	 * Records the number of ships, links, effects and clusters in the world.  Called after each step while the profiler is enabled.
+	 * @param ships The number of ships
+	 * @param links The number of links between ships
+	 * @param effects The number of effects
+	 * @param clusters The number of clusters of linked ships
+	 * @param largest The number of ships in the largest cluster
+	 */
+	public static void setCounts(int ships, int links, int effects, int clusters, int largest) {
+		numShips = ships;
+		numLinks = links;
+		numEffects = effects;
+		numClusters = clusters;
+		largestCluster = largest;
+	}
+	
+	/**
+	 * Records memory which has been allocated by the game loop
+	 * @param bytes The number of bytes which were allocated
+	 */
+	public static void recordAllocation(long bytes) {
+		allocatedBytes.addAndGet(bytes);
+	}
+	
+	/**
+	 * @return The number of bytes which the current thread has allocated since it started,
+	 * or -1 if the JVM can't measure it
+	 */
+	public static long getThreadAllocatedBytes() {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (!(threadBean instanceof com.sun.management.ThreadMXBean))
+			return -1;
+		
+		return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	/**
+	 * @param phase A phase
+	 * @return The name of the phase
+	 */
+	public static String getPhaseName(int phase) {
+		return PHASE_NAMES[phase].trim();
+	}
+	
+	/**
+	 * @return The number of megabytes allocated each second by the game loop since the measurements were last cleared
+	 */
+	public static double getAllocationRate() {
+		double seconds = (System.nanoTime() - resetTime) / NANOS_PER_SECOND;
+		if (seconds <= 0)
+			return 0;
+		
+		return allocatedBytes.get() / (1024.0 * 1024.0) / seconds;
+	}
+	
+	/**
+	 * @return Every measurement, as lines of text which line up when drawn in a monospaced font
+	 */
+	public static String[] getReport() {
+		String[] lines = new String[NUM_PHASES + 4];
+		
+		lines[0] = String.format("%-12s %7s %8s %8s %8s", "phase (us)", "count", "p50", "p99", "max");
+		for (int i = 0; i < NUM_PHASES; i++) {
+			Histogram histogram = histograms[i];
+			lines[i + 1] = String.format("%-12s %7d %8.1f %8.1f %8.1f", PHASE_NAMES[i], histogram.getCount(),
+					histogram.getPercentile(50) / NANOS_PER_MICRO, histogram.getPercentile(99) / NANOS_PER_MICRO,
+					histogram.getMax() / NANOS_PER_MICRO);
+		}
+		
+		lines[NUM_PHASES + 1] = String.format("ships %d  links %d  effects %d", numShips, numLinks, numEffects);
+		lines[NUM_PHASES + 2] = String.format("clusters %d  largest %d", numClusters, largestCluster);
+		lines[NUM_PHASES + 3] = String.format("allocation %.2f MB/s", getAllocationRate());
+		return lines;
+	}
+	
+	/**
+	 * Registers the profiler with the platform's MBeanServer, so that it can be read and enabled through JMX
+	 */
+	public static void registerMBean() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(
+					new StandardMBean(new Management(), ProfilerMBean.class), new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			// Non-essential - the profiler can still be used in the game
+			System.out.println("WARNING: The profiler could not be registered with JMX: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * The JMX interface to the profiler
+	 *
+	 * @author Michael Layzell
+	 *
+	 */
+	private static class Management implements ProfilerMBean {
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#isEnabled()
+		 */
+		@Override
+		public boolean isEnabled() {
+			return Profiler.isEnabled();
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#setEnabled(boolean)
+		 */
+		@Override
+		public void setEnabled(boolean enabled) {
+			Profiler.setEnabled(enabled);
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#reset()
+		 */
+		@Override
+		public void reset() {
+			Profiler.reset();
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#getPhases()
+		 */
+		@Override
+		public String[] getPhases() {
+			String[] phases = new String[NUM_PHASES];
+			for (int i = 0; i < NUM_PHASES; i++)
+				phases[i] = getPhaseName(i);
+			return phases;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#getCounts()
+		 */
+		@Override
+		public long[] getCounts() {
+			long[] counts = new long[NUM_PHASES];
+			for (int i = 0; i < NUM_PHASES; i++)
+				counts[i] = histograms[i].getCount();
+			return counts;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#getP50Micros()
+		 */
+		@Override
+		public double[] getP50Micros() {
+			return getPercentiles(50);
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#getP99Micros()
+		 */
+		@Override
+		public double[] getP99Micros() {
+			return getPercentiles(99);
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#getMaxMicros()
+		 */
+		@Override
+		public double[] getMaxMicros() {
+			double[] times = new double[NUM_PHASES];
+			for (int i = 0; i < NUM_PHASES; i++)
+				times[i] = histograms[i].getMax() / NANOS_PER_MICRO;
+			return times;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#getShips()
+		 */
+		@Override
+		public int getShips() {
+			return numShips;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#getLinks()
+		 */
+		@Override
+		public int getLinks() {
+			return numLinks;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#getEffects()
+		 */
+		@Override
+		public int getEffects() {
+			return numEffects;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#getClusters()
+		 */
+		@Override
+		public int getClusters() {
+			return numClusters;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#getLargestCluster()
+		 */
+		@Override
+		public int getLargestCluster() {
+			return largestCluster;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#getAllocationRate()
+		 */
+		@Override
+		public double getAllocationRate() {
+			return Profiler.getAllocationRate();
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ProfilerMBean#getReport()
+		 */
+		@Override
+		public String[] getReport() {
+			return Profiler.getReport();
+		}
+		
+		/**
+		 * @param percentile A percentile, between 0 and 100
+		 * @return The percentile of the times of each phase, in microseconds
+		 */
+		private double[] getPercentiles(double percentile) {
+			double[] times = new double[NUM_PHASES];
+			for (int i = 0; i < NUM_PHASES; i++)
+				times[i] = histograms[i].getPercentile(percentile) / NANOS_PER_MICRO;
+			return times;
+		}
+		
+	}
+	
+}
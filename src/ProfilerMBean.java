@@ -0,0 +1,87 @@
+/**
+ * The management interface of the Profiler, through which its measurements can be read with JMX tools
+ * such as JConsole or VisualVM.
+ * All times are in microseconds, and are listed in the same order as getPhases().
+ *
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public interface ProfilerMBean {
+	
+	/**
+	 * @return Whether or not the phases of the game are being timed
+	 */
+	public boolean isEnabled();
+	
+	/**
+	 * Starts or stops timing the phases of the game.  Starting clears every measurement.
+	 * @param enabled Whether or not to time the phases of the game
+	 */
+	public void setEnabled(boolean enabled);
+	
+	/**
+	 * Clears every measurement
+	 */
+	public void reset();
+	
+	/**
+	 * @return The names of the phases which are timed
+	 */
+	public String[] getPhases();
+	
+	/**
+	 * @return The number of times which each phase has been timed
+	 */
+	public long[] getCounts();
+	
+	/**
+	 * @return The median time of each phase
+	 */
+	public double[] getP50Micros();
+	
+	/**
+	 * @return The 99th percentile time of each phase
+	 */
+	public double[] getP99Micros();
+	
+	/**
+	 * @return The longest time of each phase
+	 */
+	public double[] getMaxMicros();
+	
+	/**
+	 * @return The number of ships after the last step
+	 */
+	public int getShips();
+	
+	/**
+	 * @return The number of links between ships after the last step
+	 */
+	public int getLinks();
+	
+	/**
+	 * @return The number of effects after the last step
+	 */
+	public int getEffects();
+	
+	/**
+	 * @return The number of clusters of linked ships after the last step
+	 */
+	public int getClusters();
+	
+	/**
+	 * @return The number of ships in the largest cluster after the last step
+	 */
+	public int getLargestCluster();
+	
+	/**
+	 * @return The number of megabytes allocated each second by the game loop
+	 */
+	public double getAllocationRate();
+	
+	/**
+	 * @return Every measurement, as lines of text
+	 */
+	public String[] getReport();
+	
+}
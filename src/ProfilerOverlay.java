@@ -0,0 +1,75 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+
+/**
+ * This class draws the profiler's measurements over the top left of the GamePanel.
+ * While the overlay is shown, the profiler times the game.  The text is only updated every UPDATE_TIME, so that it can be read.
+ * The overlay is shown and hidden on the Event Dispatch Thread, and drawn by the game loop, so it is locked whenever it is used.
+ *
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class ProfilerOverlay {
+	
+	// How often the text is updated, in nanoseconds
+	private static final long UPDATE_TIME = 500000000;
+	
+	// The font and color of the overlay
+	private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+	private static final Color BACKGROUND = new Color(0, 0, 0, 160);
+	
+	// Whether or not the overlay is shown
+	private volatile boolean shown = false;
+	
+	// The lines of the overlay, and when they were last updated
+	private String[] report;
+	private long reportTime;
+	
+	/**
+	 * Shows the overlay if it is hidden, or hides it if it is shown, timing the game only while it is shown
+	 */
+	public synchronized void toggle() {
+		shown = !shown;
+		Profiler.setEnabled(shown);
+		report = null;
+	}
+	
+	/**
+	 * @return Whether or not the overlay is shown
+	 */
+	public boolean isShown() {
+		return shown;
+	}
+	
+	/**
+	 * Draws the overlay, if it is shown
+	 * @param g The graphics context, which is drawing in screen coordinates
+	 */
+	public synchronized void paint(Graphics2D g) {
+		if (!shown)
+			return;
+		
+		long now = System.nanoTime();
+		if (report == null || now - reportTime >= UPDATE_TIME) {
+			report = Profiler.getReport();
+			reportTime = now;
+		}
+		
+		g.setFont(FONT);
+		FontMetrics metrics = g.getFontMetrics();
+		int lineHeight = metrics.getHeight();
+		int width = 0;
+		for (String line : report)
+			width = Math.max(width, metrics.stringWidth(line));
+		
+		g.setColor(BACKGROUND);
+		g.fillRect(0, 0, width + 10, lineHeight * report.length + 10);
+		
+		g.setColor(Color.WHITE);
+		for (int i = 0; i < report.length; i++)
+			g.drawString(report[i], 5, 5 + lineHeight * i + metrics.getAscent());
+	}
+	
+}
@@ -0,0 +1,253 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class records a game to a file, so that it can be played again exactly by Replay.
+ * A recording is a compact binary log which is only ever appended to.  It starts with a header containing
+ * everything needed to create the same world, followed by one record for each thing which happened to the world.
+ * Records are collected in a buffer, and written to the file when the buffer is full.
+ * 
+ * The header is: MAGIC, VERSION, seed, spawn rate, initial health, initial score, timestep, width, height, 
+ * whether the world is a large arena, and the number of threads which the world is simulated on.
+ * Each record starts with a byte saying what kind of record it is.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class Recorder {
+	
+	// Identifies a file as a recording, and the version of the format which it was written in
+	public static final int MAGIC = 0x4E585250;
+	public static final int VERSION = 5;
+	
+	// The oldest version which can still be replayed.
+	// Before version 4, the header only said whether the world was simulated in parallel.
+	// Version 5 added whether the world is a large arena, which doesn't change how the game is played.
+	public static final int MIN_VERSION = 2;
+	
+	// The kinds of records
+	public static final byte TICKS = 0; // Followed by the number of steps (int)
+	public static final byte CLICK = 1; // Followed by the X and Y coordinates of the click (int, int)
+	public static final byte BOUNDS = 2; // Followed by the new width and height of the world (int, int)
+	public static final byte TIMESTEP = 3; // Followed by the new timestep (long)
+	public static final byte END = 4; // Followed by the final health and score (double, double)
+	public static final byte RESEED = 5; // Followed by the new seed of the world's Random object (long)
+	public static final byte SELECT = 6; // Followed by the corners of the selected rectangle (int, int, int, int)
+	public static final byte SWEPT = 7; // Followed by whether swept collisions are enabled (byte)
+	public static final byte PARALLELISM = 8; // Followed by the new number of threads (int)
+	
+	// The size of the buffer
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	// The largest record, which must always fit in the buffer
+	private static final int MAX_RECORD_SIZE = 1 + 16;
+	
+	// The file which is being written to, or null once the recording has ended
+	private FileChannel channel;
+	
+	// The records which have not been written to the file yet
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	
+	// The number of steps since the last record.
+	// Steps are counted rather than recorded individually, as most steps have nothing else happen between them.
+	private int pendingTicks = 0;
+	
+	/**
+	 * Creates a file and writes the header of a recording to it
+	 * @param path The file to create.  It must not already exist.
+	 * @param seed The seed of the world's Random object
+	 * @param spawnRate The time in millis between each ship being spawned
+	 * @param initialHealth The starting life of the nexus
+	 * @param initialScore The starting score of the player
+	 * @param timestep The length of each step, in millis
+	 * @param width The width of the world
+	 * @param height The height of the world
+	 * @param largeArena Whether the world is a large arena, whose bounds stay the same
+	 * @param parallelism The number of threads which the world is simulated on
+	 * @throws IOException If the file can't be created
+	 */
+	public Recorder(Path path, long seed, double spawnRate, double initialHealth, double initialScore, 
+			long timestep, int width, int height, boolean largeArena, int parallelism) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, 
+				StandardOpenOption.APPEND);
+		
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putLong(seed);
+		buffer.putDouble(spawnRate);
+		buffer.putDouble(initialHealth);
+		buffer.putDouble(initialScore);
+		buffer.putLong(timestep);
+		buffer.putInt(width);
+		buffer.putInt(height);
+		buffer.put((byte) (largeArena ? 1 : 0));
+		buffer.putInt(parallelism);
+		flush();
+	}
+	
+	/**
+	 * Records a step of the world
+	 */
+	public void recordTick() {
+		pendingTicks++;
+	}
+	
+	/**
+	 * Records a click
+	 * @param x The X coordinate of the click
+	 * @param y The Y coordinate of the click
+	 */
+	public void recordClick(int x, int y) {
+		if (!startRecord(CLICK))
+			return;
+		
+		buffer.putInt(x);
+		buffer.putInt(y);
+	}
+	
+	/**
+	 * Records the player selecting a rectangle
+	 * @param x1 The X coordinate of one corner of the rectangle
+	 * @param y1 The Y coordinate of one corner of the rectangle
+	 * @param x2 The X coordinate of the opposite corner of the rectangle
+	 * @param y2 The Y coordinate of the opposite corner of the rectangle
+	 */
+	public void recordSelect(int x1, int y1, int x2, int y2) {
+		if (!startRecord(SELECT))
+			return;
+		
+		buffer.putInt(x1);
+		buffer.putInt(y1);
+		buffer.putInt(x2);
+		buffer.putInt(y2);
+	}
+	
+	/**
+	 * Records a change of the world's bounds
+	 * @param width The new width of the world
+	 * @param height The new height of the world
+	 */
+	public void recordBounds(int width, int height) {
+		if (!startRecord(BOUNDS))
+			return;
+		
+		buffer.putInt(width);
+		buffer.putInt(height);
+	}
+	
+	/**
+	 * Records a change of the world's timestep
+	 * @param timestep The new length of each step, in millis
+	 */
+	public void recordTimestep(long timestep) {
+		if (!startRecord(TIMESTEP))
+			return;
+		
+		buffer.putLong(timestep);
+	}
+	
+	/**
+	 * Records swept collisions being enabled or disabled
+	 * @param swept Whether swept collisions are enabled
+	 */
+	public void recordSwept(boolean swept) {
+		if (!startRecord(SWEPT))
+			return;
+		
+		buffer.put((byte) (swept ? 1 : 0));
+	}
+	
+	/**
+	 * Records a change of the number of threads which the world is simulated on
+	 * @param parallelism The new number of threads
+	 */
+	public void recordParallelism(int parallelism) {
+		if (!startRecord(PARALLELISM))
+			return;
+		
+		buffer.putInt(parallelism);
+	}
+	
+	/**
+	 * Records the world's Random object being given a new seed
+	 * @param seed The new seed
+	 */
+	public void recordReseed(long seed) {
+		if (!startRecord(RESEED))
+			return;
+		
+		buffer.putLong(seed);
+	}
+	
+	/**
+	 * Records the final state of the world, and closes the file.
+	 * Nothing else can be recorded afterwards.
+	 * @param health The final life of the nexus
+	 * @param score The player's final score
+	 */
+	public void end(double health, double score) {
+		if (!startRecord(END))
+			return;
+		
+		buffer.putDouble(health);
+		buffer.putDouble(score);
+		
+		try {
+			flush();
+			channel.close();
+		} catch (IOException e) {
+			System.out.println("WARNING: Unable to finish the recording: " + e.getMessage());
+		}
+		channel = null;
+	}
+	
+	/**
+	 * Writes any steps which haven't been written yet, and the kind of a new record, to the buffer.
+	 * The buffer is written to the file first if the record might not fit.
+	 * @param kind The kind of the record
+	 * @return Whether or not the record should be written - false if the recording has ended
+	 */
+	private boolean startRecord(byte kind) {
+		if (channel == null)
+			return false;
+		
+		try {
+			if (buffer.remaining() < 2 * MAX_RECORD_SIZE)
+				flush();
+		} catch (IOException e) {
+			// Stop recording rather than stopping the game
+			System.out.println("WARNING: Unable to write the recording, it will be incomplete: " + e.getMessage());
+			try {
+				channel.close();
+			} catch (IOException e2) {
+				// The recording is already incomplete
+			}
+			channel = null;
+			return false;
+		}
+		
+		if (pendingTicks > 0) {
+			buffer.put(TICKS);
+			buffer.putInt(pendingTicks);
+			pendingTicks = 0;
+		}
+		
+		buffer.put(kind);
+		return true;
+	}
+	
+	/**
+	 * Writes the buffer to the file
+	 * @throws IOException If the file can't be written to
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+	
+}
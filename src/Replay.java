@@ -0,0 +1,211 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * This class plays a game recorded by a Recorder again, as fast as possible and without a display.
+ * It checks that the replayed game ends with the same life and score as the recorded one, 
+ * and reports how long the slowest steps took, so that slow moments in a player's game can be found again.
+ * 
+ * Run it from the folder containing the 'recordings' folder:
+ * 	java -Djava.awt.headless=true -cp src Replay recordings/[recording] [threads]
+ * The game is replayed on the number of threads it was recorded on, unless another number is given.
+ * The game is the same on any number of threads, so this only changes how long the replay takes.
+ * It exits with a status of 1 if the replayed game is different from the recorded one.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class Replay {
+	
+	/**
+	 * Replays a recording
+	 * @param args The first arguement is the recording to replay, 
+	 * 	and the optional second arguement is the number of threads to replay it on
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: java -cp src Replay [recording] [threads]");
+			System.exit(1);
+		}
+		
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+		Replay replay = new Replay(Paths.get(args[0]), threads);
+		boolean matched = replay.run();
+		
+		replay.printReport();
+		if (!matched)
+			System.exit(1);
+	}
+	
+	// The records which are being replayed
+	private ByteBuffer records;
+	
+	// The world which the game is replayed in
+	private World world;
+	
+	// The number of threads to replay the game on, or 0 to use the numbers in the recording
+	private int threads;
+	
+	// The number of steps replayed, and the time which they took in nanoseconds
+	private long steps = 0;
+	private long totalTime = 0;
+	
+	// The slowest step, and the time which it took in nanoseconds
+	private long slowestStep = -1;
+	private long slowestTime = 0;
+	
+	// The final life and score which were recorded
+	private double recordedHealth;
+	private double recordedScore;
+	private boolean ended = false;
+	
+	/**
+	 * Reads the header of a recording, and creates the world which it was recorded in.
+	 * The game is replayed on the number of threads which it was recorded on.
+	 * @param path The recording
+	 * @throws IOException If the recording can't be read, or isn't a recording
+	 */
+	public Replay(Path path) throws IOException {
+		this(path, 0);
+	}
+	
+	/**
+	 * Reads the header of a recording, and creates the world which it was recorded in
+	 * @param path The recording
+	 * @param threads The number of threads to replay the game on, or 0 to use the numbers in the recording
+	 * @throws IOException If the recording can't be read, or isn't a recording
+	 */
+	public Replay(Path path, int threads) throws IOException {
+		this.threads = threads;
+		
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			channel.close();
+		}
+		
+		if (records.remaining() < 8 || records.getInt() != Recorder.MAGIC)
+			throw new IOException(path + " is not a recording");
+		
+		int version = records.getInt();
+		if (version < Recorder.MIN_VERSION || version > Recorder.VERSION)
+			throw new IOException(path + " was recorded in version " + version + ", which can't be replayed");
+		
+		long seed = records.getLong();
+		double spawnRate = records.getDouble();
+		double initialHealth = records.getDouble();
+		double initialScore = records.getDouble();
+		long timestep = records.getLong();
+		int width = records.getInt();
+		int height = records.getInt();
+		boolean largeArena = version >= 5 && records.get() != 0;
+		int parallelism;
+		if (version >= 4)
+			parallelism = records.getInt();
+		else
+			parallelism = records.get() != 0 ? Runtime.getRuntime().availableProcessors() : 1;
+		
+		world = new World(spawnRate, initialHealth, initialScore, width, height, largeArena, new Random(seed));
+		world.setTimestep(timestep);
+		world.setWarnFailedSpawns(false);
+		world.setParallelism(threads > 0 ? threads : parallelism);
+	}
+	
+	/**
+	 * Replays every record in the recording
+	 * @return Whether or not the game ended with the same life and score as the recorded one.
+	 * 	Recordings which never ended always match.
+	 */
+	public boolean run() {
+		while (records.hasRemaining() && !ended) {
+			byte kind = records.get();
+			switch (kind) {
+				case Recorder.TICKS:
+					int count = records.getInt();
+					for (int i = 0; i < count; i++)
+						step();
+					break;
+				case Recorder.CLICK:
+					int x = records.getInt();
+					int y = records.getInt();
+					world.click(x, y);
+					break;
+				case Recorder.SELECT:
+					world.select(records.getInt(), records.getInt(), records.getInt(), records.getInt());
+					break;
+				case Recorder.BOUNDS:
+					int width = records.getInt();
+					int height = records.getInt();
+					world.setBounds(width, height);
+					break;
+				case Recorder.TIMESTEP:
+					world.setTimestep(records.getLong());
+					break;
+				case Recorder.SWEPT:
+					world.setSweptCollisions(records.get() != 0);
+					break;
+				case Recorder.PARALLELISM:
+					int parallelism = records.getInt();
+					if (threads == 0)
+						world.setParallelism(parallelism);
+					break;
+				case Recorder.RESEED:
+					world.reseed(records.getLong());
+					break;
+				case Recorder.END:
+					recordedHealth = records.getDouble();
+					recordedScore = records.getDouble();
+					ended = true;
+					break;
+				default:
+					throw new IllegalStateException("Unknown record " + kind + " at " + (records.position() - 1));
+			}
+		}
+		
+		world.setParallelism(1);
+		
+		return !ended || (world.getHealth() == recordedHealth && world.getScore() == recordedScore);
+	}
+	
+	/**
+	 * Steps the world, timing the step
+	 */
+	private void step() {
+		long start = System.nanoTime();
+		world.step();
+		long time = System.nanoTime() - start;
+		
+		totalTime += time;
+		if (time > slowestTime) {
+			slowestTime = time;
+			slowestStep = steps;
+		}
+		steps++;
+	}
+	
+	/**
+	 * Prints the final state of the replayed game, and how long it took
+	 */
+	public void printReport() {
+		System.out.printf("Replayed %d steps in %.1f ms (%.1f us per step)%n", steps, totalTime / 1e6, 
+				steps == 0 ? 0 : totalTime / 1e3 / steps);
+		System.out.printf("Slowest step: %d, which took %.1f us%n", slowestStep, slowestTime / 1e3);
+		System.out.printf("Final life: %.1f, score: %.0f, ships: %d, failed spawns: %d%n", world.getHealth(), 
+				world.getScore(), world.getNumShips(), world.getFailedSpawns());
+		
+		if (!ended)
+			System.out.println("The recording never ended, so there is nothing to compare against");
+		else if (world.getHealth() == recordedHealth && world.getScore() == recordedScore)
+			System.out.println("MATCH: the replayed game ended the same as the recorded one");
+		else
+			System.out.printf("MISMATCH: the recorded game ended with life: %.1f, score: %.0f%n", 
+					recordedHealth, recordedScore);
+	}
+	
+}
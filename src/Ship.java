@@ -1,14 +1,14 @@
-
-
-import java.awt.BasicStroke;
-import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * This class represents a ship.  It is displayed on the screen in the Nexus Defense game.
+ * The position, size and other properties of the ship are kept in its world's ShipStore,
+ * and the ship refers to its slot in the store.
  * 
  * @author Michael Layzell
  * Made for CISC 124, Winter 2013
@@ -24,55 +24,62 @@ public class Ship {
 	// Possible values for the 'type' variable
 	public static final int TYPE_NORMAL = 0;
 	public static final int TYPE_FAST = 1;
-
-	// The speeds of the normal and fast types
-	private static final double NORMAL_SPEED = 0.05;
-	private static final double FAST_SPEED = 0.1;
 	
 	// Base dimensions
 	public static final int BASE_HALF_DIM = 20;
 	public static final int HALF_DIM_SCALING = 2; 
-	private static final int MAX_LINKS = 5;
 	
-	private static final Color linkColor = new Color(255, 156, 255, 50);
+	// Ships stop growing once they have this many links
+	public static final int MAX_GROWTH_LINKS = 3;
 	
-	// The position and type of the ship
-	private double x, y;
-	private int type;
+	// The largest half dimension which a ship can have
+	public static final int MAX_HALF_DIM = BASE_HALF_DIM + HALF_DIM_SCALING * MAX_GROWTH_LINKS;
 	
-	// The direction the ship is moving in
-	private int dir;
+	// The number which identifies the ship within its world
+	private int id;
 	
 	// The ships which this ship is linked to
 	// The more links there are between ships, the stronger the ship
-	private List<Ship> links = new ArrayList<Ship>();
+	// A hash set makes checking for, adding and removing a link take constant time,
+	// and keeps the links in the order they were made so the game is the same every time.
+	private Set<Ship> links = new LinkedHashSet<Ship>();
 	
-	// The lifespan of the ship
-	private long lifespan = 0;
+	// The world which the ship is in
+	private World world;
 	
-	// The size of the ship
-	private int half_dim = BASE_HALF_DIM;
+	// The store which holds the ship's properties, and the ship's slot in it
+	private ShipStore store;
+	private int slot;
 	
-	// Whether or not the ship is moving
-	private boolean moving = true;
+	// The cluster of linked ships which the ship is in
+	private ClusterIndex.Cluster cluster;
 	
-	// The game panel
-	private GamePanel gamePanel;
+	/**
+	 * Create a ship which refers to a slot in a ShipStore.
+	 * Ships are created by World.createShip().
+	 * @param world The world which the ship is in
+	 * @param store The store which holds the ship's properties
+	 * @param slot The ship's slot in the store
+	 */
+	public Ship(World world, ShipStore store, int slot) {
+		this.world = world;
+		this.store = store;
+		this.slot = slot;
+		this.id = world.createShipId();
+	}
 	
 	/**
-	 * Create a ship with the following parameters
-	 * @param x The x position of the ship on the screen
-	 * @param y The y position of the ship on the screen
-	 * @param dir The direction which the ship is moving
-	 * @param type The type of the ship
+	 * Create a ship with a particular id.  Used when restoring a snapshot of a world.
+	 * @param world The world which the ship is in
+	 * @param store The store which holds the ship's properties
+	 * @param slot The ship's slot in the store
+	 * @param id The number which identifies the ship within its world
 	 */
-	public Ship(int x, int y, int dir, int type, GamePanel gamePanel) {
-		this.x = x;
-		this.y = y;
-		this.dir = dir;
-		this.type = type;
-		
-		this.gamePanel = gamePanel;
+	public Ship(World world, ShipStore store, int slot, int id) {
+		this.world = world;
+		this.store = store;
+		this.slot = slot;
+		this.id = id;
 	}
 	
 	/**
@@ -83,39 +90,65 @@ public class Ship {
 	 * @return Whether or not the two ships are colliding with eachother
 	 */
 	public static boolean areColliding(Ship a, Ship b) {
-		int xDistance = (int) Math.abs(a.x - b.x);
-		int yDistance = (int) Math.abs(a.y - b.y);
-		
-		if (xDistance <= a.half_dim + b.half_dim) {
-			// Colliding in the x direction
-			if (yDistance <= a.half_dim + b.half_dim) {
-				// Colliding in the y direction
-				return true;
-			}
-		}
-		
-		return false;
+		return a.store.areColliding(a.slot, b.slot);
+	}
+	
+	/**
+	 * @return The number which identifies the ship within its world
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * @return The ship's slot in its world's ShipStore
+	 */
+	public int getSlot() {
+		return slot;
+	}
+	
+	/**
+	 * Called by the ShipStore when the ship is moved to a different slot
+	 * @param slot The ship's new slot
+	 */
+	public void setSlot(int slot) {
+		this.slot = slot;
+	}
+	
+	/**
+	 * @return The cluster of linked ships which the ship is in
+	 */
+	public ClusterIndex.Cluster getCluster() {
+		return cluster;
+	}
+	
+	/**
+	 * Called by the ClusterIndex when the ship is moved to a different cluster
+	 * @param cluster The ship's new cluster
+	 */
+	public void setCluster(ClusterIndex.Cluster cluster) {
+		this.cluster = cluster;
 	}
 	
 	/**
 	 * @return Whether or not the ship is moving (low enough # of links)
 	 */
 	public boolean isMoving() {
-		return moving;
+		return store.isMoving(slot);
 	}
 	
 	/**
 	 * @return The Y-coordinate of the ship
 	 */
 	public double getY() {
-		return y;
+		return store.getY(slot);
 	}
 	
 	/**
 	 * @return The X-coordinate of the ship
 	 */
 	public double getX() {
-		return x;
+		return store.getX(slot);
 	}
 	
 	/**
@@ -125,8 +158,9 @@ public class Ship {
 	 * @return Whether or not these coordinates intersect with the ship
 	 */
 	public boolean pointOnShip(int xPt, int yPt) {
-		int xDistance = (int) Math.abs(x - xPt);
-		int yDistance = (int) Math.abs(y - yPt);
+		int xDistance = (int) Math.abs(getX() - xPt);
+		int yDistance = (int) Math.abs(getY() - yPt);
+		int half_dim = store.getHalfDim(slot);
 		
 		return xDistance <= half_dim && yDistance <= half_dim;
 	}
@@ -134,27 +168,63 @@ public class Ship {
 	/**
 	 * Connects this ship and the ship 'other'
 	 * @param other The other ship to connect to.
+	 * @return Whether or not a new link was made - false if the ships were already linked
 	 */
-	public void link(Ship other) {
-		if (!links.contains(other)) {
-			links.add(other);
-			other.link(this);
-		}
+	public boolean link(Ship other) {
+		if (!links.add(other))
+			return false;
+		
+		other.links.add(this);
 		
-		recalculateDimensions();
+		linksChanged(links.size() - 1);
+		other.linksChanged(other.links.size() - 1);
+		world.getClusterIndex().linked(this, other);
+		return true;
 	}
 	
 	/**
 	 * Disconnects this ship and the ship 'other'
 	 * @param other The other ship to disconnect from.
+	 * @return Whether or not a link was removed - false if the ships were not linked
 	 */
-	public void unlink(Ship other) {
-		if (links.contains(other)) {
-			links.remove(other);
-			other.unlink(this);
-		}
+	public boolean unlink(Ship other) {
+		if (!links.remove(other))
+			return false;
 		
-		recalculateDimensions();
+		other.links.remove(this);
+		
+		linksChanged(links.size() + 1);
+		other.linksChanged(other.links.size() + 1);
+		world.getClusterIndex().unlinked(this, other);
+		return true;
+	}
+	
+	/**
+	 * Adds the ship 'other' to this ship's links, without adding this ship to the other ship's links.
+	 * Used when restoring a snapshot of a world, where the links of every ship are restored one ship at a time.
+	 * @param other The other ship
+	 */
+	public void restoreLink(Ship other) {
+		if (links.add(other)) {
+			linksChanged(links.size() - 1);
+			world.getClusterIndex().linked(this, other);
+		}
+	}
+	
+	/**
+	 * @return The ships which this ship is linked to, in the order which the links were made
+	 */
+	public Iterable<Ship> getLinks() {
+		return links;
+	}
+	
+	/**
+	 * Checks whether this ship is linked to the ship 'other'
+	 * @param other The other ship
+	 * @return Whether or not the ships are linked
+	 */
+	public boolean isLinked(Ship other) {
+		return links.contains(other);
 	}
 	
 	/**
@@ -168,133 +238,108 @@ public class Ship {
 	 * Causes the ship to bounce, changing direction
 	 */
 	public void bounce() {
-		switch (dir) {
-			case DIR_LEFT:
-				dir = DIR_RIGHT;
-				break;
-			case DIR_RIGHT:
-				dir = DIR_LEFT;
-				break;
-			case DIR_UP:
-				dir = DIR_DOWN;
-				break;
-			case DIR_DOWN:
-				dir = DIR_UP;
-				break;
-		}
+		store.bounce(slot);
 	}
+	
 	/**
-	 * Recalculates the dimensions based on the number of links.
-	 * If the ship has enough links, causes it to stop moving.
+	 * Called whenever the number of links which this ship has changes.
+	 * Updates the dimensions of the ship, and the world's damage rate.
+	 * @param oldLinks The number of links which the ship had before the change
 	 */
-	private void recalculateDimensions() {
-		if (links.size() >= MAX_LINKS) // Stop moving if you have too many links
-			moving = false;
-		else
-			moving = true;
-		
-		half_dim = BASE_HALF_DIM + HALF_DIM_SCALING * Math.min(links.size(), 3);
+	private void linksChanged(int oldLinks) {
+		store.setNumLinks(slot, links.size());
+		world.linkCountChanged(oldLinks, links.size());
+		world.getClusterIndex().linkCountChanged(this, oldLinks, links.size());
 	}
-
+	
 	/**
 	 * Update the position etc. of the Ship 'ship'
 	 * @param delta The time in millis since the last tick
 	 */
 	public void tick(long delta) {
-		lifespan += delta;
-		
-		// Move the ship
-		if (moving) {
-			int distance = (int) (delta * NORMAL_SPEED);
-			
-			if (type == TYPE_FAST)
-				distance = (int) (delta * FAST_SPEED);
-			
-			switch (dir) {
-				case DIR_UP:
-					y -= distance;
-					break;
-				case DIR_DOWN:
-					y += distance;
-					break;
-				case DIR_LEFT:
-					x -= distance;
-					break;
-				case DIR_RIGHT:
-					x += distance;
-					break;
-			}
-		}
-		
-		// Check that I am within the panel - and ensure I stay that way.
-		if (x - half_dim <= 0 && dir == DIR_LEFT)
-			dir = DIR_RIGHT;
-		
-		if (x + half_dim >= gamePanel.getWidth()) {
-			x = gamePanel.getWidth() - half_dim;
-			if (dir == DIR_RIGHT)
-				dir = DIR_LEFT;
-		}
-		
-		if (y - half_dim <= 0 && dir == DIR_UP)
-			dir = DIR_DOWN;
-		
-		if (y + half_dim >= gamePanel.getHeight()) {
-			y = gamePanel.getHeight() - half_dim;
-			if (dir == DIR_DOWN)
-				dir = DIR_UP;
-		}
+		store.tick(slot, delta, world.getWidth(), world.getHeight());
 	}
 	
 	/**
-	 * Paints the links between this ship and other ships to the graphics context represented by 'g'
-	 * @param g The graphics context
+	 * Gets the X-coordinate to draw the ship at
+	 * @param alpha How far between its previous and current position the ship is, between 0 and 1
+	 * @return The X-coordinate
 	 */
-	public void paint_links(Graphics2D g) {
-		// Get the style for the line
-		g.setColor(linkColor);
-		g.setStroke(new BasicStroke((lifespan / 40) % 15 + 5));
-		
+	private int drawX(double alpha) {
+		double prevX = store.getPrevX(slot);
+		return (int) (prevX + (store.getX(slot) - prevX) * alpha);
+	}
+	
+	/**
+	 * Gets the Y-coordinate to draw the ship at
+	 * @param alpha How far between its previous and current position the ship is, between 0 and 1
+	 * @return The Y-coordinate
+	 */
+	private int drawY(double alpha) {
+		double prevY = store.getPrevY(slot);
+		return (int) (prevY + (store.getY(slot) - prevY) * alpha);
+	}
+	
+	/**
+	 * Adds the links between this ship and other ships to the LinkRenderer 'renderer'.
+	 * Each link is only added by one of the two ships which it connects.
+	 * @param renderer The LinkRenderer which draws the links
+	 * @param alpha How far between the previous step and the current step to draw the ship, between 0 and 1
+	 */
+	public void paint_links(LinkRenderer renderer, double alpha) {
 		// Draw a line for the connection to each ship
-		for (Ship other : links)
-			g.drawLine((int) x, (int) y, (int) other.x, (int) other.y);
+		for (Ship other : links) {
+			if (other.id > id) {
+				renderer.addLink(store.getLifespan(slot), drawX(alpha), drawY(alpha), 
+						other.drawX(alpha), other.drawY(alpha));
+			}
+		}
 	}
 	
 	/**
 	 * Paints the ship to the graphics context represented by 'g'
 	 * @param g The graphics context
+	 * @param alpha How far between the previous step and the current step to draw the ship, between 0 and 1
 	 */
-	public void paint(Graphics2D g) {
+	public void paint(Graphics2D g, double alpha) {
 		BufferedImage img = null;
 		
-		if (type == TYPE_FAST) {
+		boolean moving = store.isMoving(slot);
+		int half_dim = store.getHalfDim(slot);
+		
+		// The sprites are already scaled to the size of the ship, so they can be drawn without scaling
+		if (store.getType(slot) == TYPE_FAST) {
 			if (moving)
-				img = SpriteManager.getSprite(SpriteManager.DRONE_FAST);
+				img = SpriteManager.getShipSprite(SpriteManager.DRONE_FAST, half_dim);
 			else
-				img = SpriteManager.getSprite(SpriteManager.DRONE_FAST_STILL);
+				img = SpriteManager.getShipSprite(SpriteManager.DRONE_FAST_STILL, half_dim);
 		} else {
 			if (moving)
-				img = SpriteManager.getSprite(SpriteManager.DRONE_NORMAL);
+				img = SpriteManager.getShipSprite(SpriteManager.DRONE_NORMAL, half_dim);
 			else
-				img = SpriteManager.getSprite(SpriteManager.DRONE_NORMAL_STILL);
+				img = SpriteManager.getShipSprite(SpriteManager.DRONE_NORMAL_STILL, half_dim);
 		}
 		
-		g.drawImage(img, (int) x - half_dim, (int) y - half_dim, 2 * half_dim, 2 * half_dim, null);
+		g.drawImage(img, drawX(alpha) - half_dim, drawY(alpha) - half_dim, null);
 	}
-
+	
 	/**
 	 * Destroys the ship
 	 */
 	public void dispose() {
-		List<Ship> oldLinks = links;
-		links = new ArrayList<Ship>(); // Make empty array list as dummy - we don't want Comodification Exception
-		
 		// Destroy all links
-		for (Ship ship : oldLinks)
-			ship.unlink(this);
+		for (Ship ship : links) {
+			ship.links.remove(this);
+			ship.linksChanged(ship.links.size() + 1);
+		}
+		
+		List<Ship> linked = new ArrayList<Ship>(links);
+		links.clear();
+		linksChanged(linked.size());
+		world.getClusterIndex().disposed(this, linked);
 		
 		// Create an explosion
-		EffectManager.getEffectManager().addEffect(new Explosion((int) x, (int) y));
+		world.getEffectManager().createExplosion((int) getX(), (int) getY());
 	}
-
+	
 }
@@ -0,0 +1,374 @@
+import java.util.Arrays;
+
+/**
+ * This class is a uniform grid which is used to find ships which could be colliding with one another,
+ * and to find the ships at a point or in an area, such as where the player clicked.
+ * Ships are stored by their slot in a ShipStore, and each cell is Ship.BASE_HALF_DIM wide.
+ * Rather than testing every ship, only ships in the cells near the point or area need to be tested.
+ *
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class ShipGrid {
+	
+	// The width and height of each cell in the grid
+	private static final int CELL_SIZE = Ship.BASE_HALF_DIM;
+	
+	// The furthest distance between two ships which can still be colliding.
+	// Ship.areColliding() truncates distances to integers, so ships can be up to one pixel further apart.
+	private static final int REACH = 2 * Ship.MAX_HALF_DIM + 1;
+	
+	// The furthest distance between a ship and a point which is on it
+	private static final int POINT_REACH = Ship.MAX_HALF_DIM + 1;
+	
+	// The number of columns and rows in the grid
+	private int cols = 0;
+	private int rows = 0;
+	
+	// The first ship in each cell, or -1 if the cell is empty
+	private int[] cellHeads = new int[0];
+	
+	// The next and previous ships in the same cell as each ship, or -1 if there are none
+	private int[] next = new int[0];
+	private int[] prev = new int[0];
+	
+	// The cell which each ship is currently stored in
+	private int[] cellOf = new int[0];
+	
+	// The results of the last query
+	private int[] found = new int[16];
+	private int numFound = 0;
+	
+	// The ships which are stored in the grid
+	private ShipStore store;
+	
+	/**
+	 * Clears the grid and inserts every ship in 'store' into it
+	 * @param store The ships to store in the grid
+	 * @param width The width of the area which the ships are in
+	 * @param height The height of the area which the ships are in
+	 */
+	public void rebuild(ShipStore store, int width, int height) {
+		this.store = store;
+		
+		cols = Math.max(width, 0) / CELL_SIZE + 1;
+		rows = Math.max(height, 0) / CELL_SIZE + 1;
+		
+		// Only reallocate the arrays when they are too small
+		if (cellHeads.length < cols * rows)
+			cellHeads = new int[cols * rows];
+		Arrays.fill(cellHeads, 0, cols * rows, -1);
+		
+		int size = store.size();
+		if (next.length < size) {
+			int capacity = Math.max(size, 2 * next.length);
+			next = new int[capacity];
+			prev = new int[capacity];
+			cellOf = new int[capacity];
+		}
+		
+		for (int i = 0; i < size; i++) {
+			insert(i, cellIndex(store.getX(i), store.getY(i)));
+		}
+	}
+	
+	/**
+	 * Adds a ship which has just been added to the end of the store to the grid
+	 * @param index The slot of the ship in the store
+	 */
+	public void add(int index) {
+		if (next.length <= index) {
+			int capacity = Math.max(index + 1, 2 * next.length);
+			next = Arrays.copyOf(next, capacity);
+			prev = Arrays.copyOf(prev, capacity);
+			cellOf = Arrays.copyOf(cellOf, capacity);
+		}
+		
+		insert(index, cellIndex(store.getX(index), store.getY(index)));
+	}
+	
+	/**
+	 * Moves the ship at 'index' into the cell for its current position.
+	 * Must be called whenever a ship in the grid moves.
+	 * @param index The slot of the ship in the store
+	 */
+	public void update(int index) {
+		int cell = cellIndex(store.getX(index), store.getY(index));
+		
+		if (cell != cellOf[index]) {
+			remove(index);
+			insert(index, cell);
+		}
+	}
+	
+	/**
+	 * Finds every ship which could be colliding with a ship at the point (x, y).
+	 * Only ships with an index greater than 'minIndex' are found.
+	 * The results are sorted by index, and can be read with getFound().
+	 * @param x The X coordinate of the point
+	 * @param y The Y coordinate of the point
+	 * @param minIndex Ships with an index less than or equal to this are ignored
+	 * @return The number of ships which were found
+	 */
+	public int query(double x, double y, int minIndex) {
+		return queryMoving(x, y, 0, minIndex);
+	}
+	
+	/**
+	 * Finds every ship which could collide with a ship at the point (x, y) if both ships move up to 'travel' further.
+	 * Only ships with an index greater than 'minIndex' are found.
+	 * The results are sorted by index, and can be read with getFound().
+	 * @param x The X coordinate of the point
+	 * @param y The Y coordinate of the point
+	 * @param travel The furthest which each ship can move from where it is stored in the grid
+	 * @param minIndex Ships with an index less than or equal to this are ignored
+	 * @return The number of ships which were found
+	 */
+	public int queryMoving(double x, double y, double travel, int minIndex) {
+		numFound = 0;
+		
+		// Find the range of cells which could contain a colliding ship
+		double reach = REACH + 2 * travel;
+		int minCol = column(x - reach);
+		int maxCol = column(x + reach);
+		int minRow = row(y - reach);
+		int maxRow = row(y + reach);
+		
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int col = minCol; col <= maxCol; col++) {
+				for (int i = cellHeads[row * cols + col]; i != -1; i = next[i]) {
+					if (i > minIndex)
+						addFound(i);
+				}
+			}
+		}
+		
+		// Sort the results so that ships are tested in the same order as the store
+		Arrays.sort(found, 0, numFound);
+		return numFound;
+	}
+	
+	/**
+	 * Determines whether a ship at the point (x, y) would be colliding with any ship in the grid
+	 * @param x The X coordinate of the point
+	 * @param y The Y coordinate of the point
+	 * @param half The half dimension of the ship at the point, which must be at most Ship.MAX_HALF_DIM
+	 * @return Whether or not the ship would be colliding
+	 */
+	public boolean isColliding(double x, double y, int half) {
+		int minCol = column(x - REACH);
+		int maxCol = column(x + REACH);
+		int minRow = row(y - REACH);
+		int maxRow = row(y + REACH);
+		
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int col = minCol; col <= maxCol; col++) {
+				for (int i = cellHeads[row * cols + col]; i != -1; i = next[i]) {
+					if (store.overlaps(i, x, y, half))
+						return true;
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Finds the ship which is drawn on top at the point (x, y).
+	 * Ships are drawn in the order of their slots, so this is the ship with the highest slot.
+	 * @param x The X coordinate of the point
+	 * @param y The Y coordinate of the point
+	 * @return The slot of the ship, or -1 if there is no ship at the point
+	 */
+	public int findTopmost(double x, double y) {
+		int topmost = -1;
+		
+		int minCol = column(x - POINT_REACH);
+		int maxCol = column(x + POINT_REACH);
+		int minRow = row(y - POINT_REACH);
+		int maxRow = row(y + POINT_REACH);
+		
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int col = minCol; col <= maxCol; col++) {
+				for (int i = cellHeads[row * cols + col]; i != -1; i = next[i]) {
+					if (i > topmost && store.isOnShip(i, x, y))
+						topmost = i;
+				}
+			}
+		}
+		
+		return topmost;
+	}
+	
+	/**
+	 * Finds every ship which overlaps a rectangle.
+	 * The results are sorted by index, and can be read with getFound().
+	 * @param minX The X coordinate of the left side of the rectangle
+	 * @param minY The Y coordinate of the top of the rectangle
+	 * @param maxX The X coordinate of the right side of the rectangle
+	 * @param maxY The Y coordinate of the bottom of the rectangle
+	 * @return The number of ships which were found
+	 */
+	public int queryRect(double minX, double minY, double maxX, double maxY) {
+		numFound = 0;
+		
+		int minCol = column(minX - POINT_REACH);
+		int maxCol = column(maxX + POINT_REACH);
+		int minRow = row(minY - POINT_REACH);
+		int maxRow = row(maxY + POINT_REACH);
+		
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int col = minCol; col <= maxCol; col++) {
+				for (int i = cellHeads[row * cols + col]; i != -1; i = next[i]) {
+					if (store.overlapsRect(i, minX, minY, maxX, maxY))
+						addFound(i);
+				}
+			}
+		}
+		
+		Arrays.sort(found, 0, numFound);
+		return numFound;
+	}
+	
+	/**
+	 * Finds every ship which overlaps a circle.
+	 * The results are sorted by index, and can be read with getFound().
+	 * @param x The X coordinate of the center of the circle
+	 * @param y The Y coordinate of the center of the circle
+	 * @param radius The radius of the circle
+	 * @return The number of ships which were found
+	 */
+	public int queryRadius(double x, double y, double radius) {
+		numFound = 0;
+		
+		int minCol = column(x - radius - POINT_REACH);
+		int maxCol = column(x + radius + POINT_REACH);
+		int minRow = row(y - radius - POINT_REACH);
+		int maxRow = row(y + radius + POINT_REACH);
+		
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int col = minCol; col <= maxCol; col++) {
+				for (int i = cellHeads[row * cols + col]; i != -1; i = next[i]) {
+					if (store.overlapsCircle(i, x, y, radius))
+						addFound(i);
+				}
+			}
+		}
+		
+		Arrays.sort(found, 0, numFound);
+		return numFound;
+	}
+	
+	/**
+	 * Finds every pair of colliding ships where the first ship is stored in one of the rows between 'minRow' and 'maxRow'.
+	 * Each ship is only stored in one cell, so every colliding pair is found in exactly one band of rows.
+	 * The grid is only read, so different bands can be searched on different threads at the same time.
+	 * @param minRow The first row to search
+	 * @param maxRow The last row to search
+	 * @param pairs The buffer to add the pairs to, with the lower slot first
+	 */
+	public void findPairs(int minRow, int maxRow, PairBuffer pairs) {
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int col = 0; col < cols; col++) {
+				for (int i = cellHeads[row * cols + col]; i != -1; i = next[i]) {
+					double x = store.getX(i);
+					double y = store.getY(i);
+					
+					// Find the range of cells which could contain a colliding ship
+					int minCol = column(x - REACH);
+					int maxCol = column(x + REACH);
+					int firstRow = row(y - REACH);
+					int lastRow = row(y + REACH);
+					
+					for (int r = firstRow; r <= lastRow; r++) {
+						for (int c = minCol; c <= maxCol; c++) {
+							for (int j = cellHeads[r * cols + c]; j != -1; j = next[j]) {
+								if (j > i && store.areColliding(i, j))
+									pairs.add(i, j);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return The number of rows in the grid
+	 */
+	public int getRows() {
+		return rows;
+	}
+	
+	/**
+	 * Gets a result from the last query
+	 * @param n The number of the result, between 0 and the number of ships found
+	 * @return The slot of the ship in the store
+	 */
+	public int getFound(int n) {
+		return found[n];
+	}
+	
+	/**
+	 * Adds a ship to the results of the current query
+	 * @param index The index of the ship
+	 */
+	private void addFound(int index) {
+		if (numFound == found.length)
+			found = Arrays.copyOf(found, 2 * found.length);
+		found[numFound++] = index;
+	}
+	
+	/**
+	 * Adds the ship at 'index' to the front of the cell 'cell'
+	 * @param index The index of the ship
+	 * @param cell The cell to add the ship to
+	 */
+	private void insert(int index, int cell) {
+		int head = cellHeads[cell];
+		
+		prev[index] = -1;
+		next[index] = head;
+		if (head != -1)
+			prev[head] = index;
+		
+		cellHeads[cell] = index;
+		cellOf[index] = cell;
+	}
+	
+	/**
+	 * Removes the ship at 'index' from the cell which it is stored in
+	 * @param index The index of the ship
+	 */
+	private void remove(int index) {
+		if (prev[index] != -1)
+			next[prev[index]] = next[index];
+		else
+			cellHeads[cellOf[index]] = next[index];
+		
+		if (next[index] != -1)
+			prev[next[index]] = prev[index];
+	}
+	
+	/**
+	 * @return The index of the cell containing the point (x, y)
+	 */
+	private int cellIndex(double x, double y) {
+		return row(y) * cols + column(x);
+	}
+	
+	/**
+	 * @return The column containing the X coordinate 'x'. Points outside the grid are clamped to its edges.
+	 */
+	private int column(double x) {
+		return Math.min(Math.max((int) Math.floor(x / CELL_SIZE), 0), cols - 1);
+	}
+	
+	/**
+	 * @return The row containing the Y coordinate 'y'. Points outside the grid are clamped to its edges.
+	 */
+	private int row(double y) {
+		return Math.min(Math.max((int) Math.floor(y / CELL_SIZE), 0), rows - 1);
+	}
+	
+}
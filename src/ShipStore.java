@@ -0,0 +1,516 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class stores the state of every ship in a world in parallel arrays, one array for each property.
+ * Ships are lightweight handles which refer to their slot in the arrays.
+ * Keeping the properties together lets movement and collisions run as tight loops over arrays of numbers,
+ * rather than following a reference to every ship.
+ * Slots are kept in the order which the ships were added, so the game is the same as when ships were kept in a list.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class ShipStore {
+	
+	// The speeds of the normal and fast types, in pixels per milli
+	private static final double NORMAL_SPEED = 0.05;
+	private static final double FAST_SPEED = 0.1;
+	
+	// The fastest which any ship moves
+	public static final double MAX_SPEED = FAST_SPEED;
+	
+	// Ships stop moving once they have this many links
+	public static final int MAX_LINKS = 5;
+	
+	// The initial number of slots
+	private static final int INITIAL_CAPACITY = 64;
+	
+	// The number of ships in the store
+	private int size = 0;
+	
+	// The handle for the ship in each slot
+	private Ship[] ships = new Ship[INITIAL_CAPACITY];
+	
+	// The position of each ship, and its position at the start of the current step
+	private double[] x = new double[INITIAL_CAPACITY];
+	private double[] y = new double[INITIAL_CAPACITY];
+	private double[] prevX = new double[INITIAL_CAPACITY];
+	private double[] prevY = new double[INITIAL_CAPACITY];
+	
+	// The direction and type of each ship
+	private int[] dir = new int[INITIAL_CAPACITY];
+	private int[] type = new int[INITIAL_CAPACITY];
+	
+	// The size, number of links and lifespan of each ship
+	private int[] halfDim = new int[INITIAL_CAPACITY];
+	private int[] numLinks = new int[INITIAL_CAPACITY];
+	private long[] lifespan = new long[INITIAL_CAPACITY];
+	
+	// Whether or not each ship is moving
+	private boolean[] moving = new boolean[INITIAL_CAPACITY];
+	
+	/**
+	 * @return The number of ships in the store
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Adds a new ship, with no links, to the end of the store
+	 * @param x The x position of the ship
+	 * @param y The y position of the ship
+	 * @param dir The direction which the ship is moving
+	 * @param type The type of the ship
+	 * @return The slot of the new ship
+	 */
+	public int add(int x, int y, int dir, int type) {
+		if (size == ships.length)
+			grow();
+		
+		int slot = size++;
+		this.x[slot] = x;
+		this.y[slot] = y;
+		this.prevX[slot] = x;
+		this.prevY[slot] = y;
+		this.dir[slot] = dir;
+		this.type[slot] = type;
+		this.halfDim[slot] = Ship.BASE_HALF_DIM;
+		this.numLinks[slot] = 0;
+		this.lifespan[slot] = 0;
+		this.moving[slot] = true;
+		
+		return slot;
+	}
+	
+	/**
+	 * Sets the handle for the ship in a slot
+	 * @param slot The slot
+	 * @param ship The ship's handle
+	 */
+	public void setShip(int slot, Ship ship) {
+		ships[slot] = ship;
+	}
+	
+	/**
+	 * Removes the ship in a slot.
+	 * The ships after it are moved down a slot, so that the order of the ships doesn't change.
+	 * @param slot The slot
+	 */
+	public void remove(int slot) {
+		int moved = size - slot - 1;
+		System.arraycopy(ships, slot + 1, ships, slot, moved);
+		System.arraycopy(x, slot + 1, x, slot, moved);
+		System.arraycopy(y, slot + 1, y, slot, moved);
+		System.arraycopy(prevX, slot + 1, prevX, slot, moved);
+		System.arraycopy(prevY, slot + 1, prevY, slot, moved);
+		System.arraycopy(dir, slot + 1, dir, slot, moved);
+		System.arraycopy(type, slot + 1, type, slot, moved);
+		System.arraycopy(halfDim, slot + 1, halfDim, slot, moved);
+		System.arraycopy(numLinks, slot + 1, numLinks, slot, moved);
+		System.arraycopy(lifespan, slot + 1, lifespan, slot, moved);
+		System.arraycopy(moving, slot + 1, moving, slot, moved);
+		
+		size--;
+		ships[size] = null;
+		
+		// Tell the moved ships about their new slots
+		for (int i = slot; i < size; i++)
+			ships[i].setSlot(i);
+	}
+	
+	/**
+	 * @return The handle for the ship in a slot
+	 */
+	public Ship getShip(int slot) {
+		return ships[slot];
+	}
+	
+	/**
+	 * @return The X-coordinate of the ship in a slot
+	 */
+	public double getX(int slot) {
+		return x[slot];
+	}
+	
+	/**
+	 * @return The Y-coordinate of the ship in a slot
+	 */
+	public double getY(int slot) {
+		return y[slot];
+	}
+	
+	/**
+	 * @return The X-coordinate of the ship in a slot at the start of the current step
+	 */
+	public double getPrevX(int slot) {
+		return prevX[slot];
+	}
+	
+	/**
+	 * @return The Y-coordinate of the ship in a slot at the start of the current step
+	 */
+	public double getPrevY(int slot) {
+		return prevY[slot];
+	}
+	
+	/**
+	 * @return The direction of the ship in a slot
+	 */
+	public int getDir(int slot) {
+		return dir[slot];
+	}
+	
+	/**
+	 * @return The type of the ship in a slot
+	 */
+	public int getType(int slot) {
+		return type[slot];
+	}
+	
+	/**
+	 * @return The half dimension of the ship in a slot
+	 */
+	public int getHalfDim(int slot) {
+		return halfDim[slot];
+	}
+	
+	/**
+	 * @return The number of links which the ship in a slot has
+	 */
+	public int getNumLinks(int slot) {
+		return numLinks[slot];
+	}
+	
+	/**
+	 * @return The lifespan of the ship in a slot
+	 */
+	public long getLifespan(int slot) {
+		return lifespan[slot];
+	}
+	
+	/**
+	 * @return Whether or not the ship in a slot is moving
+	 */
+	public boolean isMoving(int slot) {
+		return moving[slot];
+	}
+	
+	/**
+	 * Changes the number of links which the ship in a slot has, 
+	 * updating its dimensions and stopping it if it has too many links
+	 * @param slot The slot
+	 * @param links The number of links
+	 */
+	public void setNumLinks(int slot, int links) {
+		numLinks[slot] = links;
+		
+		// Stop moving if you have too many links
+		moving[slot] = links < MAX_LINKS;
+		halfDim[slot] = Ship.BASE_HALF_DIM + Ship.HALF_DIM_SCALING * Math.min(links, Ship.MAX_GROWTH_LINKS);
+	}
+	
+	/**
+	 * Returns true if the ships in slots 'a' and 'b' are colliding
+	 * @param a The slot of the first ship
+	 * @param b The slot of the second ship
+	 * @return Whether or not the two ships are colliding with eachother
+	 */
+	public boolean areColliding(int a, int b) {
+		return overlaps(a, x[b], y[b], halfDim[b]);
+	}
+	
+	/**
+	 * Finds the first ship which would be colliding with a ship at a point
+	 * @param xPt The X coordinate of the point
+	 * @param yPt The Y coordinate of the point
+	 * @param half The half dimension of the ship at the point
+	 * @return The slot of the first ship which would be colliding, or -1 if there is none
+	 */
+	public int findColliding(double xPt, double yPt, int half) {
+		for (int i = 0; i < size; i++) {
+			if (overlaps(i, xPt, yPt, half))
+				return i;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Determines whether a point is on the ship in a slot
+	 * @param slot The slot of the ship
+	 * @param xPt The X coordinate of the point
+	 * @param yPt The Y coordinate of the point
+	 * @return Whether or not the point is on the ship
+	 */
+	public boolean isOnShip(int slot, double xPt, double yPt) {
+		return overlaps(slot, xPt, yPt, 0);
+	}
+	
+	/**
+	 * Determines whether the ship in a slot overlaps a rectangle
+	 * @param slot The slot of the ship
+	 * @param minX The X coordinate of the left side of the rectangle
+	 * @param minY The Y coordinate of the top of the rectangle
+	 * @param maxX The X coordinate of the right side of the rectangle
+	 * @param maxY The Y coordinate of the bottom of the rectangle
+	 * @return Whether or not the ship and the rectangle overlap
+	 */
+	public boolean overlapsRect(int slot, double minX, double minY, double maxX, double maxY) {
+		int half = halfDim[slot];
+		
+		return x[slot] + half >= minX && x[slot] - half <= maxX && y[slot] + half >= minY && y[slot] - half <= maxY;
+	}
+	
+	/**
+	 * Determines whether the ship in a slot overlaps a circle
+	 * @param slot The slot of the ship
+	 * @param xPt The X coordinate of the center of the circle
+	 * @param yPt The Y coordinate of the center of the circle
+	 * @param radius The radius of the circle
+	 * @return Whether or not the ship and the circle overlap
+	 */
+	public boolean overlapsCircle(int slot, double xPt, double yPt, double radius) {
+		int half = halfDim[slot];
+		
+		// The distance from the center of the circle to the nearest point of the ship
+		double xDistance = Math.max(Math.abs(x[slot] - xPt) - half, 0);
+		double yDistance = Math.max(Math.abs(y[slot] - yPt) - half, 0);
+		
+		return xDistance * xDistance + yDistance * yDistance <= radius * radius;
+	}
+	
+	/**
+	 * Determines whether the ship in a slot overlaps a square.
+	 * Distances are truncated to whole pixels.
+	 * @param slot The slot of the ship
+	 * @param xPt The X coordinate of the center of the square
+	 * @param yPt The Y coordinate of the center of the square
+	 * @param half Half of the width of the square
+	 * @return Whether or not the ship and the square overlap
+	 */
+	public boolean overlaps(int slot, double xPt, double yPt, int half) {
+		int xDistance = (int) Math.abs(x[slot] - xPt);
+		int yDistance = (int) Math.abs(y[slot] - yPt);
+		int reach = halfDim[slot] + half;
+		
+		return xDistance <= reach && yDistance <= reach;
+	}
+	
+	/**
+	 * @param slot The slot
+	 * @return The speed which the ship in a slot moves at when it is moving, in pixels per milli
+	 */
+	public double getSpeed(int slot) {
+		return type[slot] == Ship.TYPE_FAST ? FAST_SPEED : NORMAL_SPEED;
+	}
+	
+	/**
+	 * @param slot The slot
+	 * @return How fast the ship in a slot is moving to the right, in pixels per milli
+	 */
+	public double getVelocityX(int slot) {
+		if (!moving[slot])
+			return 0;
+		
+		if (dir[slot] == Ship.DIR_RIGHT)
+			return getSpeed(slot);
+		if (dir[slot] == Ship.DIR_LEFT)
+			return -getSpeed(slot);
+		return 0;
+	}
+	
+	/**
+	 * @param slot The slot
+	 * @return How fast the ship in a slot is moving down, in pixels per milli
+	 */
+	public double getVelocityY(int slot) {
+		if (!moving[slot])
+			return 0;
+		
+		if (dir[slot] == Ship.DIR_DOWN)
+			return getSpeed(slot);
+		if (dir[slot] == Ship.DIR_UP)
+			return -getSpeed(slot);
+		return 0;
+	}
+	
+	/**
+	 * Moves the ship in a slot back inside the world, if it has passed the left or top wall.
+	 * tick() only turns ships around at those walls, so a long step could otherwise carry a ship out of the world.
+	 * @param slot The slot
+	 */
+	public void clampToWorld(int slot) {
+		int half = halfDim[slot];
+		if (x[slot] - half < 0)
+			x[slot] = half;
+		if (y[slot] - half < 0)
+			y[slot] = half;
+	}
+	
+	/**
+	 * Causes the ship in a slot to bounce, changing direction
+	 * @param slot The slot
+	 */
+	public void bounce(int slot) {
+		switch (dir[slot]) {
+			case Ship.DIR_LEFT:
+				dir[slot] = Ship.DIR_RIGHT;
+				break;
+			case Ship.DIR_RIGHT:
+				dir[slot] = Ship.DIR_LEFT;
+				break;
+			case Ship.DIR_UP:
+				dir[slot] = Ship.DIR_DOWN;
+				break;
+			case Ship.DIR_DOWN:
+				dir[slot] = Ship.DIR_UP;
+				break;
+		}
+	}
+	
+	/**
+	 * Remembers the current position of every ship, so that they can be drawn between this position and their next one
+	 */
+	public void savePositions() {
+		System.arraycopy(x, 0, prevX, 0, size);
+		System.arraycopy(y, 0, prevY, 0, size);
+	}
+	
+	/**
+	 * Updates the position etc. of every ship
+	 * @param delta The time in millis since the last tick
+	 * @param width The width of the world
+	 * @param height The height of the world
+	 */
+	public void tickAll(long delta, int width, int height) {
+		for (int slot = 0; slot < size; slot++)
+			tick(slot, delta, width, height);
+	}
+	
+	/**
+	 * Updates the position etc. of the ship in a slot
+	 * @param slot The slot
+	 * @param delta The time in millis since the last tick
+	 * @param width The width of the world
+	 * @param height The height of the world
+	 */
+	public void tick(int slot, long delta, int width, int height) {
+		lifespan[slot] += delta;
+		
+		int half = halfDim[slot];
+		int d = dir[slot];
+		
+		// Move the ship
+		if (moving[slot]) {
+			// Ships can move less than a pixel in a short step, so the distance is not rounded
+			double distance = delta * getSpeed(slot);
+			
+			switch (d) {
+				case Ship.DIR_UP:
+					y[slot] -= distance;
+					break;
+				case Ship.DIR_DOWN:
+					y[slot] += distance;
+					break;
+				case Ship.DIR_LEFT:
+					x[slot] -= distance;
+					break;
+				case Ship.DIR_RIGHT:
+					x[slot] += distance;
+					break;
+			}
+		}
+		
+		// Check that the ship is within the world - and ensure it stays that way.
+		if (x[slot] - half <= 0 && d == Ship.DIR_LEFT)
+			d = Ship.DIR_RIGHT;
+		
+		if (x[slot] + half >= width) {
+			x[slot] = width - half;
+			if (d == Ship.DIR_RIGHT)
+				d = Ship.DIR_LEFT;
+		}
+		
+		if (y[slot] - half <= 0 && d == Ship.DIR_UP)
+			d = Ship.DIR_DOWN;
+		
+		if (y[slot] + half >= height) {
+			y[slot] = height - half;
+			if (d == Ship.DIR_DOWN)
+				d = Ship.DIR_UP;
+		}
+		
+		dir[slot] = d;
+	}
+	
+	/**
+	 * @return The number of bytes which write() writes
+	 */
+	public int getSnapshotSize() {
+		// The positions and previous positions, the directions and types, and the lifespans
+		return 4 + size * (4 * 8 + 2 * 4 + 8);
+	}
+	
+	/**
+	 * Writes the position, direction, type and lifespan of every ship to a buffer.
+	 * Each property is written for every ship at once, straight from its array.
+	 * The size and movement of each ship are not written, as they depend on its links.
+	 * @param buffer The buffer to write to
+	 */
+	public void write(ByteBuffer buffer) {
+		buffer.putInt(size);
+		
+		buffer.asDoubleBuffer().put(x, 0, size).put(y, 0, size).put(prevX, 0, size).put(prevY, 0, size);
+		buffer.position(buffer.position() + 4 * 8 * size);
+		
+		buffer.asIntBuffer().put(dir, 0, size).put(type, 0, size);
+		buffer.position(buffer.position() + 2 * 4 * size);
+		
+		buffer.asLongBuffer().put(lifespan, 0, size);
+		buffer.position(buffer.position() + 8 * size);
+	}
+	
+	/**
+	 * Reads ships written by write() into an empty store.
+	 * The ships have no links, and their handles must be set with setShip().
+	 * @param buffer The buffer to read from
+	 */
+	public void read(ByteBuffer buffer) {
+		int count = buffer.getInt();
+		while (ships.length < count)
+			grow();
+		
+		buffer.asDoubleBuffer().get(x, 0, count).get(y, 0, count).get(prevX, 0, count).get(prevY, 0, count);
+		buffer.position(buffer.position() + 4 * 8 * count);
+		
+		buffer.asIntBuffer().get(dir, 0, count).get(type, 0, count);
+		buffer.position(buffer.position() + 2 * 4 * count);
+		
+		buffer.asLongBuffer().get(lifespan, 0, count);
+		buffer.position(buffer.position() + 8 * count);
+		
+		for (int slot = 0; slot < count; slot++)
+			setNumLinks(slot, 0);
+		size = count;
+	}
+	
+	/**
+	 * Doubles the number of slots
+	 */
+	private void grow() {
+		int capacity = 2 * ships.length;
+		ships = Arrays.copyOf(ships, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		prevX = Arrays.copyOf(prevX, capacity);
+		prevY = Arrays.copyOf(prevY, capacity);
+		dir = Arrays.copyOf(dir, capacity);
+		type = Arrays.copyOf(type, capacity);
+		halfDim = Arrays.copyOf(halfDim, capacity);
+		numLinks = Arrays.copyOf(numLinks, capacity);
+		lifespan = Arrays.copyOf(lifespan, capacity);
+		moving = Arrays.copyOf(moving, capacity);
+	}
+}
@@ -0,0 +1,136 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class saves and restores the whole state of a world, so that a game can be stopped and resumed later,
+ * or a world can be copied.
+ * A snapshot is a compact binary format: MAGIC and VERSION, followed by the world as written by World.writeSnapshot().
+ * Files are written and read through memory-mapped buffers, so large worlds can be saved and loaded quickly.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class Snapshot {
+	
+	// Identifies a file as a snapshot, and the version of the format which it was written in.
+	// Version 2 added whether the world is a large arena.
+	public static final int MAGIC = 0x4E585353;
+	public static final int VERSION = 2;
+	
+	// The order of the bytes in a snapshot.  This is the native order of most machines, so arrays can be copied directly.
+	private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+	
+	/**
+	 * @param world The world
+	 * @return The number of bytes in a snapshot of the world
+	 */
+	public static int getSize(World world) {
+		return 4 + 4 + world.getSnapshotSize();
+	}
+	
+	/**
+	 * Writes a snapshot of a world to a buffer
+	 * @param world The world
+	 * @param buffer The buffer to write to, which must have at least getSize(world) bytes remaining
+	 */
+	public static void write(World world, ByteBuffer buffer) {
+		buffer.order(BYTE_ORDER);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		world.writeSnapshot(buffer);
+	}
+	
+	/**
+	 * Creates a world from a snapshot in a buffer
+	 * @param buffer The buffer to read from
+	 * @return The world
+	 * @throws IOException If the buffer doesn't contain a snapshot which can be read
+	 */
+	public static World read(ByteBuffer buffer) throws IOException {
+		buffer.order(BYTE_ORDER);
+		if (buffer.remaining() < 8 || buffer.getInt() != MAGIC)
+			throw new IOException("Not a snapshot");
+		
+		int version = buffer.getInt();
+		if (version != VERSION)
+			throw new IOException("The snapshot was saved in version " + version + ", which can't be loaded");
+		
+		try {
+			return World.readSnapshot(buffer);
+		} catch (RuntimeException e) {
+			// The snapshot is truncated or corrupted
+			throw new IOException("The snapshot is damaged", e);
+		}
+	}
+	
+	/**
+	 * Saves a snapshot of a world to a file.
+	 * The snapshot is written to a temporary file first, so that an existing file is only replaced by a complete snapshot.
+	 * @param world The world
+	 * @param path The file to save to
+	 * @throws IOException If the file can't be written
+	 */
+	public static void save(World world, Path path) throws IOException {
+		Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+		int size = getSize(world);
+		
+		FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ, 
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			write(world, buffer);
+			if (buffer.hasRemaining())
+				throw new IllegalStateException("The snapshot was " + buffer.remaining() + " bytes shorter than its size");
+			buffer.force();
+		} finally {
+			channel.close();
+		}
+		
+		Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	 * Loads a world from a snapshot in a file
+	 * @param path The file to load from
+	 * @return The world
+	 * @throws IOException If the file can't be read, or isn't a snapshot
+	 */
+	public static World load(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			World world = read(buffer);
+			if (buffer.hasRemaining())
+				throw new IOException("The snapshot is damaged: " + buffer.remaining() + " bytes were left over");
+			return world;
+		} finally {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Creates a copy of a world, which will continue in the same way as the original
+	 * @param world The world to copy
+	 * @return The copy
+	 */
+	public static World copy(World world) {
+		ByteBuffer buffer = ByteBuffer.allocate(getSize(world));
+		write(world, buffer);
+		buffer.flip();
+		
+		try {
+			return read(buffer);
+		} catch (IOException e) {
+			// The snapshot was just written, so it can always be read
+			throw new IllegalStateException(e);
+		}
+	}
+	
+}
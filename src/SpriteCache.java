@@ -0,0 +1,197 @@
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This class is a cache of decoded sprites, so that they don't need to be decoded from their image files every launch.
+ * The cache is a single file containing the raw pixels of each sprite, which is memory-mapped when it is read.
+ * Each sprite in the cache remembers a stamp of the image file which it was decoded from,
+ * such as its modification time and length, and is ignored if the stamp has changed.
+ * 
+ * The file is: MAGIC, VERSION, the number of sprites, then for each sprite: the stamp of its image file, 
+ * its width, height and transparency, and the position of its pixels.  The pixels follow, as ARGB ints.
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class SpriteCache {
+	
+	// Identifies a file as a sprite cache, and the version of the format which it was written in
+	private static final int MAGIC = 0x4E585343;
+	private static final int VERSION = 2;
+	
+	// The size of the header, and of the entry for each sprite
+	private static final int HEADER_SIZE = 4 + 4 + 4;
+	private static final int ENTRY_SIZE = 8 + 4 + 4 + 4 + 8;
+	
+	// The cache is written in the native order of most machines, so pixels can be copied directly
+	private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+	
+	// The contents of the cache file, or null if there is no usable cache
+	private ByteBuffer contents;
+	
+	// The size, transparency and position of the pixels of each sprite, or a position of -1 if the sprite is not cached
+	private int[] widths;
+	private int[] heights;
+	private int[] transparencies;
+	private long[] positions;
+	
+	/**
+	 * Opens a cache file.  Missing or damaged caches are treated as empty caches.
+	 * @param path The cache file
+	 * @param stamps The current stamp of the image file which each sprite is decoded from
+	 */
+	public SpriteCache(Path path, long[] stamps) {
+		widths = new int[stamps.length];
+		heights = new int[stamps.length];
+		transparencies = new int[stamps.length];
+		positions = new long[stamps.length];
+		Arrays.fill(positions, -1);
+		
+		if (!Files.isRegularFile(path))
+			return;
+		
+		try {
+			FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+			try {
+				contents = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(BYTE_ORDER);
+			} finally {
+				channel.close();
+			}
+			
+			if (contents.remaining() < HEADER_SIZE || contents.getInt() != MAGIC || contents.getInt() != VERSION
+					|| contents.getInt() != stamps.length
+					|| contents.remaining() < stamps.length * ENTRY_SIZE) {
+				contents = null;
+				return;
+			}
+			
+			for (int id = 0; id < stamps.length; id++) {
+				long stamp = contents.getLong();
+				widths[id] = contents.getInt();
+				heights[id] = contents.getInt();
+				transparencies[id] = contents.getInt();
+				long position = contents.getLong();
+				
+				// Only use sprites whose image files haven't changed, and whose pixels are all in the file
+				if (stamp == stamps[id]
+						&& position + 4L * widths[id] * heights[id] <= contents.limit())
+					positions[id] = position;
+			}
+		} catch (IOException e) {
+			// The sprites will be decoded from their image files instead
+			contents = null;
+		}
+	}
+	
+	/**
+	 * @return Whether or not every sprite is in the cache and up to date
+	 */
+	public boolean isComplete() {
+		for (long position : positions) {
+			if (position == -1)
+				return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Reads a sprite from the cache.  Can be called from several threads at once.
+	 * @param id The sprite
+	 * @return The sprite, or null if it isn't in the cache or is out of date
+	 */
+	public BufferedImage read(int id) {
+		if (contents == null || positions[id] == -1)
+			return null;
+		
+		int type = transparencies[id] == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+		BufferedImage image = new BufferedImage(widths[id], heights[id], type);
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		
+		// Each thread needs its own position in the contents
+		ByteBuffer buffer = contents.duplicate().order(BYTE_ORDER);
+		buffer.position((int) positions[id]);
+		buffer.asIntBuffer().get(pixels);
+		
+		return image;
+	}
+	
+	/**
+	 * Writes a cache file containing every sprite.
+	 * The cache is written to a temporary file first, so that the cache is never left half written.
+	 * @param path The cache file
+	 * @param stamps The stamp of the image file which each sprite was decoded from
+	 * @param sprites The sprites
+	 * @throws IOException If the cache file can't be written
+	 */
+	public static void write(Path path, long[] stamps, BufferedImage[] sprites) throws IOException {
+		long size = HEADER_SIZE + stamps.length * ENTRY_SIZE;
+		for (BufferedImage sprite : sprites)
+			size += 4L * sprite.getWidth() * sprite.getHeight();
+		
+		if (path.getParent() != null)
+			Files.createDirectories(path.getParent());
+		Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+		
+		FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ, 
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(BYTE_ORDER);
+			
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(stamps.length);
+			
+			long position = HEADER_SIZE + stamps.length * ENTRY_SIZE;
+			for (int id = 0; id < stamps.length; id++) {
+				buffer.putLong(stamps[id]);
+				buffer.putInt(sprites[id].getWidth());
+				buffer.putInt(sprites[id].getHeight());
+				buffer.putInt(sprites[id].getTransparency());
+				buffer.putLong(position);
+				position += 4L * sprites[id].getWidth() * sprites[id].getHeight();
+			}
+			
+			for (BufferedImage sprite : sprites) {
+				int[] pixels = toPixels(sprite);
+				buffer.asIntBuffer().put(pixels);
+				buffer.position(buffer.position() + 4 * pixels.length);
+			}
+			
+			buffer.force();
+		} finally {
+			channel.close();
+		}
+		
+		Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	 * Gets the pixels of an image as ARGB ints
+	 * @param image The image
+	 * @return The pixels, left to right and then top to bottom
+	 */
+	private static int[] toPixels(BufferedImage image) {
+		BufferedImage argb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		
+		Graphics2D g = argb.createGraphics();
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		
+		return ((DataBufferInt) argb.getRaster().getDataBuffer()).getData();
+	}
+	
+}
@@ -1,13 +1,31 @@
 
 
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.imageio.ImageIO;
 
 /**
  * This class loads and provides access to the various sprites which are used throughout the game.
+ * Only the sprite used by the main menu is loaded before the game starts, the rest are loaded in the background.
+ * Sprites are loaded from an AssetPack on the classpath or in the working directory if there is one, 
+ * and from the 'assets' folder otherwise.
  * 
  * @author Michael Layzell
  * Made for CISC 124, Winter 2013
@@ -23,23 +41,118 @@ public class SpriteManager {
 	public static final int NEXUS_PORTRAIT = 5;
 	public static final int EXPLOSION = 6;
 	
+	// The number of frames in the x and y directions of the explosion sprite sheet
+	private static final int EXPLOSION_XFRAMES = 4;
+	private static final int EXPLOSION_YFRAMES = 4;
+	
+	// The number of sprites
+	private static final int NUM_SPRITES = 7;
+	
+	// The folder which the image files are loaded from when there is no AssetPack
+	private static final String ASSET_FOLDER = "assets";
+	
+	// The image file which each sprite is loaded from
+	private static final String[] NAMES = {
+		"drone_normal.png",
+		"drone_fast.png",
+		"drone_normal_still.png",
+		"drone_fast_still.png",
+		"nexus_background.png",
+		"nexus_portrait.png",
+		"explosion.png"
+	};
+	
+	// The file which decoded sprites are cached in, so that later launches don't need to decode them.
+	// It is kept in the user's home folder, so that the game can be run from any folder.
+	// Run with -Dnexus.spriteCache=false to always decode the image files.
+	private static final String CACHE_PATH = System.getProperty("user.home") + "/.nexus-defender/sprites.raw";
+	private static final boolean USE_CACHE = !"false".equals(System.getProperty("nexus.spriteCache"));
+	
+	// The pack which the image files are loaded from, or null to load them from the ASSET_FOLDER
+	private static AssetPack pack;
+	
 	// Storage location for the loaded sprites
 	private static BufferedImage[] sprites;
 	
+	// The sprites as they were decoded, kept only until they have been written to the cache
+	private static BufferedImage[] decoded;
+	
+	// Storage location for the frames of sprites which are sprite sheets
+	// Sprites which are not sprite sheets have no frames
+	private static BufferedImage[][] frames;
+	
+	// The number of different sizes which a ship can be drawn at
+	private static final int SHIP_SIZES = (Ship.MAX_HALF_DIM - Ship.BASE_HALF_DIM) / Ship.HALF_DIM_SCALING + 1;
+	
+	// Storage location for the drone sprites, pre-scaled to each size which a ship can be
+	private static BufferedImage[][] shipSprites;
+	
+	// Loads the sprites which aren't needed by the main menu in the background
+	private static FutureTask<Void> loading;
+	
+	// Whether or not every sprite has been loaded.  Once it is true, sprites can be used without waiting.
+	private static volatile boolean loaded = false;
+	
 	/**
-	 * Loads all of the sprites into memory and saves them
-	 * @throws IOException 
+	 * Loads the sprite needed by the main menu, and starts loading the rest of the sprites in the background.
+	 * The other sprites are decoded in parallel while the menu is showing.  Getting one of them before they 
+	 * have all been loaded waits for them to finish loading.
+	 * @throws IOException If the main menu's sprite can't be loaded
 	 */
 	public static void init() throws IOException {
-		sprites = new BufferedImage[7];
+		sprites = new BufferedImage[NUM_SPRITES];
+		decoded = new BufferedImage[NUM_SPRITES];
+		frames = new BufferedImage[NUM_SPRITES][];
+		shipSprites = new BufferedImage[4][SHIP_SIZES];
+		loaded = false;
+		
+		// Decode the images in memory, rather than through temporary files
+		ImageIO.setUseCache(false);
+		
+		// Use a pack on the classpath, or in the working directory, if there is one
+		pack = AssetPack.openResource();
+		if (pack == null && Files.isRegularFile(Paths.get(AssetPack.FILE_NAME)))
+			pack = AssetPack.open(Paths.get(AssetPack.FILE_NAME));
+		
+		final SpriteCache cache = USE_CACHE ? new SpriteCache(Paths.get(CACHE_PATH), getStamps()) : null;
+		
+		// The main menu only needs the portrait, so it is loaded before the menu is shown
+		sprites[NEXUS_PORTRAIT] = load(NEXUS_PORTRAIT, cache);
+		
+		loading = new FutureTask<Void>(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				loadRemaining(cache);
+				return null;
+			}
+		});
 		
-		sprites[DRONE_NORMAL] = ImageIO.read(new File("assets/drone_normal.png"));
-		sprites[DRONE_FAST] = ImageIO.read(new File("assets/drone_fast.png"));
-		sprites[DRONE_NORMAL_STILL] = ImageIO.read(new File("assets/drone_normal_still.png"));
-		sprites[DRONE_FAST_STILL] = ImageIO.read(new File("assets/drone_fast_still.png")); 
-		sprites[NEXUS_BG] = ImageIO.read(new File("assets/nexus_background.png"));
-		sprites[NEXUS_PORTRAIT] = ImageIO.read(new File("assets/nexus_portrait.png"));
-		sprites[EXPLOSION] = ImageIO.read(new File("assets/explosion.png"));
+		Thread thread = new Thread(loading, "Sprite Loader");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Waits for every sprite to be loaded
+	 * @throws IOException If a sprite couldn't be loaded
+	 */
+	public static void awaitLoaded() throws IOException {
+		if (loaded)
+			return;
+		
+		if (loading == null)
+			throw new Error("Sprites not yet loaded");
+		
+		try {
+			loading.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading sprites", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException("Unable to load sprites", e.getCause());
+		}
 	}
 	
 	/**
@@ -48,10 +161,275 @@ public class SpriteManager {
 	 * @return The BufferedImage for the Sprite
 	 */
 	public static BufferedImage getSprite(int id) {
-		if (sprites == null)
+		if (id != NEXUS_PORTRAIT)
+			waitForSprites();
+		else if (sprites == null)
 			throw new Error("Sprites not yet loaded");
 		
 		return sprites[id];
 	}
+	
+	/**
+	 * Gets the drone sprite represented by id, scaled to the size of a ship
+	 * @param id The drone sprite to get - one of DRONE_NORMAL, DRONE_FAST, DRONE_NORMAL_STILL or DRONE_FAST_STILL
+	 * @param halfDim The half dimension of the ship
+	 * @return The BufferedImage for the sprite, which is 2 * halfDim wide and high
+	 */
+	public static BufferedImage getShipSprite(int id, int halfDim) {
+		if (!loaded)
+			waitForSprites();
+		
+		return shipSprites[id][(halfDim - Ship.BASE_HALF_DIM) / Ship.HALF_DIM_SCALING];
+	}
+	
+	/**
+	 * Gets a single frame of the sprite sheet represented by id
+	 * @param id The sprite sheet to get the frame from
+	 * @param frame The index of the frame, counting left to right and then top to bottom
+	 * @return The BufferedImage for the frame
+	 */
+	public static BufferedImage getFrame(int id, int frame) {
+		if (!loaded)
+			waitForSprites();
+		
+		return frames[id][frame];
+	}
+	
+	/**
+	 * Gets the number of frames in the sprite sheet represented by id
+	 * @param id The sprite sheet
+	 * @return The number of frames in the sprite sheet
+	 */
+	public static int getNumFrames(int id) {
+		if (!loaded)
+			waitForSprites();
+		
+		return frames[id].length;
+	}
+	
+	/**
+	 * Waits for every sprite to be loaded, for the getters which can't throw an IOException
+	 */
+	private static void waitForSprites() {
+		try {
+			awaitLoaded();
+		} catch (IOException e) {
+			throw new Error("Unable to load sprites", e);
+		}
+	}
+	
+	/**
+	 * Loads every sprite except the portrait, decoding them in parallel.
+	 * Also scales the drones and slices the sprite sheets, and writes the sprites to the cache if they weren't all in it.
+	 * @param cache The cache to read sprites from, or null to decode every sprite
+	 * @throws Exception If a sprite can't be loaded
+	 */
+	private static void loadRemaining(SpriteCache cache) throws Exception {
+		int threads = Math.min(NUM_SPRITES - 1, Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		
+		try {
+			List<Future<Void>> tasks = new ArrayList<Future<Void>>();
+			for (int id = 0; id < NUM_SPRITES; id++) {
+				if (id != NEXUS_PORTRAIT)
+					tasks.add(executor.submit(new LoadTask(id, cache)));
+			}
+			
+			for (Future<Void> task : tasks) {
+				try {
+					task.get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception)
+						throw (Exception) e.getCause();
+					throw (Error) e.getCause();
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		
+		// Remember the decoded sprites for next time
+		if (cache != null && !cache.isComplete()) {
+			for (int id = 0; id < NUM_SPRITES; id++) {
+				if (decoded[id] == null)
+					decoded[id] = cache.read(id);
+			}
+			
+			try {
+				SpriteCache.write(Paths.get(CACHE_PATH), getStamps(), decoded);
+			} catch (IOException e) {
+				// Non-essential - the sprites will be decoded again next time
+				System.out.println("WARNING: Unable to write the sprite cache: " + e.getMessage());
+			}
+		}
+		decoded = null;
+		
+		loaded = true;
+	}
+	
+	/**
+	 * Loads a sprite, and prepares the images which are made from it
+	 * 
+	 * @author Michael Layzell
+	 *
+	 */
+	private static class LoadTask implements Callable<Void> {
+		
+		// The sprite to load
+		private int id;
+		
+		// The cache to read the sprite from, or null to decode it
+		private SpriteCache cache;
+		
+		/**
+		 * Creates a LoadTask
+		 * @param id The sprite to load
+		 * @param cache The cache to read the sprite from, or null to decode it
+		 */
+		public LoadTask(int id, SpriteCache cache) {
+			this.id = id;
+			this.cache = cache;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		@Override
+		public Void call() throws IOException {
+			sprites[id] = load(id, cache);
+			
+			// Scale the drones to each size which a ship can be once, rather than every time a ship is drawn
+			if (id <= DRONE_FAST_STILL) {
+				for (int size = 0; size < SHIP_SIZES; size++) {
+					int dim = 2 * (Ship.BASE_HALF_DIM + Ship.HALF_DIM_SCALING * size);
+					shipSprites[id][size] = scale(sprites[id], dim, dim);
+				}
+			}
+			
+			// Slice the sprite sheets into their frames once, rather than every time a frame is drawn
+			if (id == EXPLOSION)
+				frames[EXPLOSION] = slice(sprites[EXPLOSION], EXPLOSION_XFRAMES, EXPLOSION_YFRAMES);
+			
+			return null;
+		}
+	}
+	
+	/**
+	 * Slices a sprite sheet into separate images for each of its frames
+	 * @param sheet The sprite sheet
+	 * @param xFrames The number of frames in the x direction
+	 * @param yFrames The number of frames in the y direction
+	 * @return The frames, left to right and then top to bottom
+	 */
+	private static BufferedImage[] slice(BufferedImage sheet, int xFrames, int yFrames) {
+		int width = sheet.getWidth() / xFrames;
+		int height = sheet.getHeight() / yFrames;
+		
+		BufferedImage[] result = new BufferedImage[xFrames * yFrames];
+		for (int frameY = 0; frameY < yFrames; frameY++) {
+			for (int frameX = 0; frameX < xFrames; frameX++) {
+				// Copy the frame into its own image, so it can be drawn without referring to the whole sheet
+				BufferedImage frame = createCompatibleImage(width, height, sheet.getTransparency());
+				Graphics2D g = frame.createGraphics();
+				g.drawImage(sheet, -frameX * width, -frameY * height, null);
+				g.dispose();
+				
+				result[frameY * xFrames + frameX] = frame;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Gets a number for each sprite which changes whenever its image file changes
+	 * @return The numbers, for the SpriteCache
+	 * @throws IOException If an image file is missing from the pack
+	 */
+	private static long[] getStamps() throws IOException {
+		long[] stamps = new long[NUM_SPRITES];
+		for (int id = 0; id < NUM_SPRITES; id++) {
+			if (pack != null) {
+				stamps[id] = pack.getStamp(NAMES[id]);
+			} else {
+				File file = new File(ASSET_FOLDER, NAMES[id]);
+				stamps[id] = 31 * file.lastModified() + file.length();
+			}
+		}
+		
+		return stamps;
+	}
+	
+	/**
+	 * Loads a sprite from the cache or its image file, and converts it into the format which can be drawn 
+	 * to the screen most quickly
+	 * @param id The sprite
+	 * @param cache The cache to read the sprite from, or null to decode it
+	 * @return The image
+	 * @throws IOException
+	 */
+	private static BufferedImage load(int id, SpriteCache cache) throws IOException {
+		BufferedImage image = cache == null ? null : cache.read(id);
+		
+		if (image == null) {
+			if (pack != null) {
+				InputStream in = pack.openEntry(NAMES[id]);
+				try {
+					image = ImageIO.read(in);
+				} finally {
+					in.close();
+				}
+			} else {
+				image = ImageIO.read(new File(ASSET_FOLDER, NAMES[id]));
+			}
+			
+			if (image == null)
+				throw new IOException("Unable to decode " + NAMES[id]);
+			
+			// Keep the decoded sprite so that it can be written to the cache
+			if (cache != null)
+				decoded[id] = image;
+		}
+		
+		return scale(image, image.getWidth(), image.getHeight());
+	}
+	
+	/**
+	 * Copies an image into a new image of the format which can be drawn to the screen most quickly
+	 * @param image The image to copy
+	 * @param width The width to scale the image to
+	 * @param height The height to scale the image to
+	 * @return The copied image
+	 */
+	private static BufferedImage scale(BufferedImage image, int width, int height) {
+		BufferedImage result = createCompatibleImage(width, height, image.getTransparency());
+		
+		Graphics2D g = result.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(image, 0, 0, width, height, null);
+		g.dispose();
+		
+		return result;
+	}
+	
+	/**
+	 * Creates an image in the format which can be drawn to the screen most quickly
+	 * @param width The width of the image
+	 * @param height The height of the image
+	 * @param transparency The transparency of the image - one of the constants in Transparency
+	 * @return The image
+	 */
+	public static BufferedImage createCompatibleImage(int width, int height, int transparency) {
+		// There is no screen to be compatible with when running without a display
+		if (GraphicsEnvironment.isHeadless()) {
+			if (transparency == Transparency.OPAQUE)
+				return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+		}
+		
+		return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+				.getDefaultConfiguration().createCompatibleImage(width, height, transparency);
+	}
 
 }
@@ -0,0 +1,407 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * This class finds collisions between ships while they move during a step, rather than only where they are at its start.
+ * Ships move in straight lines along one axis, so the time at which two ships' bounding squares first touch,
+ * or at which a ship reaches a wall, can be solved for exactly.  Impacts are found for each pair of nearby ships
+ * and for each ship and the wall ahead of it, and handled in order of time: the ships are moved to where they touch,
+ * the world collides them (or the wall turns the ship around), and then their new paths are checked again.
+ * Every other ship is moved the whole step at once when there are no impacts left.
+ *
+ * This lets the world be simulated with long steps, where fast ships would otherwise pass through eachother
+ * without ever being seen to overlap.  Each ship keeps its own clock, which is how far through the step it has been moved.
+ * Clocks are whole millis, like every other tick, so ships are moved to the last milli before they touch.
+ *
+ * Ships trapped between others could keep hitting eachother, so each part of the step only handles a limited
+ * number of impacts.  When they run out, every ship is moved to the time of the next impact, and the rest of
+ * the step is started again from there, so no impact is skipped unless the step stops making progress.
+ *
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class SweptCollider {
+	
+	// The most impacts which are handled for each ship before the rest of the step is started again
+	private static final int MAX_IMPACTS_PER_SHIP = 4;
+	
+	// The slot given as the second ship of an impact with a wall
+	private static final int WALL = -1;
+	
+	// The ships which are being moved, and the grid which they are stored in
+	private ShipStore store;
+	private ShipGrid grid;
+	
+	// The bounds of the world
+	private int width;
+	private int height;
+	
+	// The length of the step, and the furthest which a ship can move in it
+	private long delta;
+	private double travel;
+	
+	// How far through the step each ship has been moved, in millis
+	private long[] clock = new long[0];
+	
+	// The number of times each ship's path has changed this step.  Impacts found for an older path are ignored.
+	private int[] version = new int[0];
+	
+	// The impacts which have been found but not yet handled, earliest first
+	private PriorityQueue<Impact> impacts = new PriorityQueue<Impact>();
+	
+	// Impacts which have been handled, to be reused rather than creating new ones
+	private List<Impact> impactPool = new ArrayList<Impact>();
+	
+	// The time at which the current part of the step started, and the impacts left before it is started again
+	private long partStart;
+	private int impactsLeft;
+	
+	// The ships in the impact which was last returned by nextImpact()
+	private int first;
+	private int second;
+	
+	/**
+	 * Starts a step, finding the first impact between each pair of ships which will touch during it.
+	 * The grid must hold the current position of every ship.
+	 * @param store The ships
+	 * @param grid The grid which the ships are stored in
+	 * @param delta The length of the step, in millis
+	 * @param width The width of the world
+	 * @param height The height of the world
+	 */
+	public void start(ShipStore store, ShipGrid grid, long delta, int width, int height) {
+		this.store = store;
+		this.grid = grid;
+		this.delta = delta;
+		this.width = width;
+		this.height = height;
+		travel = delta * ShipStore.MAX_SPEED;
+		
+		int size = store.size();
+		if (clock.length < size) {
+			clock = new long[size];
+			version = new int[size];
+		}
+		for (int i = 0; i < size; i++) {
+			clock[i] = 0;
+			version[i] = 0;
+		}
+		
+		startPart(0);
+	}
+	
+	/**
+	 * Finds the earliest impact which is still going to happen, and moves both of its ships to where they touch.
+	 * The ships can then be read with getFirst() and getSecond(), and must be collided by the world.
+	 * Impacts with walls are handled here, and are never returned.
+	 * @return Whether or not there was an impact
+	 */
+	public boolean nextImpact() {
+		while (!impacts.isEmpty()) {
+			Impact impact = impacts.peek();
+			
+			// One of the ships has changed direction since the impact was found
+			if (impact.firstVersion != version[impact.first]
+					|| (impact.second != WALL && impact.secondVersion != version[impact.second])) {
+				release(impacts.poll());
+				continue;
+			}
+			
+			// Too many impacts have been handled in this part of the step, so start the rest of it again.
+			// If the ships are stuck at the start of the part, skip ahead a milli so that the step always ends.
+			if (impactsLeft == 0) {
+				long time = Math.max(impact.time, partStart + 1);
+				if (time > delta) {
+					clearImpacts();
+					return false;
+				}
+				
+				startPart(time);
+				continue;
+			}
+			
+			impacts.poll();
+			impactsLeft--;
+			
+			if (impact.second == WALL) {
+				// Moving the ship into the wall turns it around
+				moveTo(impact.first, impact.time);
+				findImpacts(impact.first);
+				release(impact);
+				continue;
+			}
+			
+			first = impact.first;
+			second = impact.second;
+			moveTo(first, impact.time);
+			moveTo(second, impact.time);
+			release(impact);
+			return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * @return The slot of the first ship in the last impact, which is always lower than the second
+	 */
+	public int getFirst() {
+		return first;
+	}
+	
+	/**
+	 * @return The slot of the second ship in the last impact
+	 */
+	public int getSecond() {
+		return second;
+	}
+	
+	/**
+	 * Finds the next impacts of the ships in the last impact, after the world has collided them
+	 */
+	public void collided() {
+		// Colliding moves the ships apart
+		grid.update(first);
+		grid.update(second);
+		
+		findImpacts(first);
+		findImpacts(second);
+	}
+	
+	/**
+	 * Moves every ship to the end of the step
+	 */
+	public void finish() {
+		for (int i = 0; i < store.size(); i++) {
+			store.tick(i, delta - clock[i], width, height);
+			store.clampToWorld(i);
+		}
+		
+		clearImpacts();
+	}
+	
+	/**
+	 * Moves every ship to a time in the step, and finds every impact after it
+	 * @param time How far through the step to start from
+	 */
+	private void startPart(long time) {
+		clearImpacts();
+		
+		int size = store.size();
+		for (int i = 0; i < size; i++)
+			moveTo(i, time);
+		
+		partStart = time;
+		impactsLeft = MAX_IMPACTS_PER_SHIP * size;
+		
+		for (int i = 0; i < size; i++) {
+			addWallImpact(i);
+			
+			int numFound = grid.queryMoving(store.getX(i), store.getY(i), travel, i);
+			for (int n = 0; n < numFound; n++)
+				addImpact(i, grid.getFound(n));
+		}
+	}
+	
+	/**
+	 * Moves a ship further through the step, keeping it inside the world, and puts it in its new cell of the grid
+	 * @param slot The slot of the ship
+	 * @param time How far through the step to move it to, which must not be before its clock
+	 */
+	private void moveTo(int slot, long time) {
+		if (time > clock[slot]) {
+			store.tick(slot, time - clock[slot], width, height);
+			store.clampToWorld(slot);
+			clock[slot] = time;
+			grid.update(slot);
+		}
+	}
+	
+	/**
+	 * Forgets the impacts found for a ship's old path, and finds the impacts on its new path
+	 * @param slot The slot of the ship
+	 */
+	private void findImpacts(int slot) {
+		version[slot]++;
+		addWallImpact(slot);
+		
+		// Every ship has moved at most 'travel' from where it is in the grid, and can move up to 'travel' more
+		int numFound = grid.queryMoving(store.getX(slot), store.getY(slot), travel, -1);
+		for (int n = 0; n < numFound; n++) {
+			int other = grid.getFound(n);
+			if (other < slot)
+				addImpact(other, slot);
+			else if (other > slot)
+				addImpact(slot, other);
+		}
+	}
+	
+	/**
+	 * Finds when a ship will reach the wall ahead of it, if it will before the end of the step, and adds the impact
+	 * @param slot The slot of the ship
+	 */
+	private void addWallImpact(int slot) {
+		double vx = store.getVelocityX(slot);
+		double vy = store.getVelocityY(slot);
+		double x = store.getX(slot);
+		double y = store.getY(slot);
+		int half = store.getHalfDim(slot);
+		
+		// The distance to the wall which the ship is moving towards, and the speed it is moving towards it at
+		double distance;
+		double speed;
+		if (vx < 0) {
+			distance = x - half;
+			speed = -vx;
+		} else if (vx > 0) {
+			distance = width - half - x;
+			speed = vx;
+		} else if (vy < 0) {
+			distance = y - half;
+			speed = -vy;
+		} else if (vy > 0) {
+			distance = height - half - y;
+			speed = vy;
+		} else {
+			return;
+		}
+		
+		// Ships which are already against the wall have been turned around by it
+		if (distance <= 0)
+			return;
+		
+		// The ship reaches the wall in the first whole milli at which it is on or past it
+		long time = clock[slot] + (long) Math.ceil(distance / speed);
+		if (time > delta)
+			return;
+		
+		addImpact(time, slot, WALL);
+	}
+	
+	/**
+	 * Finds when two ships will first touch, if they will touch before the end of the step, and adds the impact
+	 * @param i The slot of the first ship
+	 * @param j The slot of the second ship, which must be greater than the first
+	 */
+	private void addImpact(int i, int j) {
+		// Find where both ships are at the later of their clocks
+		long now = Math.max(clock[i], clock[j]);
+		double vxi = store.getVelocityX(i);
+		double vyi = store.getVelocityY(i);
+		double vxj = store.getVelocityX(j);
+		double vyj = store.getVelocityY(j);
+		double dx = store.getX(j) + vxj * (now - clock[j]) - store.getX(i) - vxi * (now - clock[i]);
+		double dy = store.getY(j) + vyj * (now - clock[j]) - store.getY(i) - vyi * (now - clock[i]);
+		
+		// Ships are colliding while both distances, truncated to whole pixels, are within their reach
+		double reach = store.getHalfDim(i) + store.getHalfDim(j) + 1;
+		
+		// Find the times in which the ships overlap along each axis, and when both axes overlap
+		double enter = Double.NEGATIVE_INFINITY;
+		double exit = Double.POSITIVE_INFINITY;
+		double vx = vxj - vxi;
+		double vy = vyj - vyi;
+		
+		if (vx == 0) {
+			if (Math.abs(dx) >= reach)
+				return;
+		} else {
+			enter = Math.max(enter, Math.min((-reach - dx) / vx, (reach - dx) / vx));
+			exit = Math.min(exit, Math.max((-reach - dx) / vx, (reach - dx) / vx));
+		}
+		
+		if (vy == 0) {
+			if (Math.abs(dy) >= reach)
+				return;
+		} else {
+			enter = Math.max(enter, Math.min((-reach - dy) / vy, (reach - dy) / vy));
+			exit = Math.min(exit, Math.max((-reach - dy) / vy, (reach - dy) / vy));
+		}
+		
+		// Ships which already overlap are collided at the start of the next step, as they would be without sweeping
+		if (enter <= 0 || enter >= exit || now + enter > delta)
+			return;
+		
+		addImpact(now + (long) Math.floor(enter), i, j);
+	}
+	
+	/**
+	 * Adds an impact to the queue, reusing a handled impact if there is one
+	 * @param time How far through the step the impact happens
+	 * @param i The slot of the first ship
+	 * @param j The slot of the second ship, or WALL
+	 */
+	private void addImpact(long time, int i, int j) {
+		Impact impact = impactPool.isEmpty() ? new Impact() : impactPool.remove(impactPool.size() - 1);
+		impact.set(time, i, j, version[i], j == WALL ? 0 : version[j]);
+		impacts.add(impact);
+	}
+	
+	/**
+	 * Returns an impact which has been taken from the queue to the pool
+	 * @param impact The impact
+	 */
+	private void release(Impact impact) {
+		impactPool.add(impact);
+	}
+	
+	/**
+	 * Returns every impact in the queue to the pool
+	 */
+	private void clearImpacts() {
+		while (!impacts.isEmpty())
+			impactPool.add(impacts.poll());
+	}
+	
+	/**
+	 * The Impact class is a time in the step when two ships will first touch, or a ship will reach a wall
+	 *
+	 * @author Michael Layzell
+	 *
+	 */
+	private static class Impact implements Comparable<Impact> {
+		
+		// How far through the step the ships touch, in millis
+		private long time;
+		
+		// The ships, and the versions of their paths when the impact was found
+		private int first;
+		private int second;
+		private int firstVersion;
+		private int secondVersion;
+		
+		/**
+		 * Sets where and when the impact happens
+		 * @param time How far through the step the ships touch
+		 * @param first The slot of the first ship
+		 * @param second The slot of the second ship, or WALL
+		 * @param firstVersion The version of the first ship's path
+		 * @param secondVersion The version of the second ship's path
+		 */
+		public void set(long time, int first, int second, int firstVersion, int secondVersion) {
+			this.time = time;
+			this.first = first;
+			this.second = second;
+			this.firstVersion = firstVersion;
+			this.secondVersion = secondVersion;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		@Override
+		public int compareTo(Impact other) {
+			// Impacts at the same time are handled in order of their slots, so the game is the same every time
+			if (time != other.time)
+				return time < other.time ? -1 : 1;
+			if (first != other.first)
+				return first < other.first ? -1 : 1;
+			if (second != other.second)
+				return second < other.second ? -1 : 1;
+			return 0;
+		}
+	}
+	
+}
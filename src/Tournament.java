@@ -0,0 +1,410 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class plays many complete games without a display, at every difficulty of the main menu,
+ * with each game driven by a ClickPolicy rather than a player.  It is used to measure how balanced the
+ * difficulties are, and how fast the game can be simulated.
+ *
+ * The games are played at the same time on a ForkJoinPool, which steals work so that long games
+ * don't leave threads idle.  Each game is seeded from its number, so every run plays the same games.
+ * The games are stepped as often as the real game is, unless another timestep is given with -Dnexus.timestep=[millis].
+ * One line is written to a CSV file for each game, with how long the nexus survived, the final score,
+ * how many ships couldn't be spawned for lack of room, and how many steps were simulated each second.
+ *
+ * Run it from any folder:
+ * 	java -Djava.awt.headless=true -cp src Tournament [games] [output] [threads] [policies]
+ * where 'games' is the number of games to play at each difficulty with each policy,
+ * and 'policies' is a comma separated list of policies to play with, which defaults to every policy.
+ * How often the automatic player clicks, and how accurately, can be changed with 
+ * -Dnexus.clickInterval=[millis] and -Dnexus.aimError=[pixels].
+ *
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class Tournament {
+	
+	// The names of the difficulties, and the time in millis between each ship being spawned at each of them
+	private static final String[] DIFFICULTIES = {"easy", "medium", "hard", "insane"};
+	private static final int[] SPAWN_RATES = {MainMenu.EASY_SPAWN_RATE, MainMenu.MEDIUM_SPAWN_RATE,
+		MainMenu.HARD_SPAWN_RATE, MainMenu.INSANE_SPAWN_RATE};
+	
+	// The policies which games can be played with
+	private static final ClickPolicy[] POLICIES = {new RandomPolicy(), new GreedyPolicy(), new CenterPolicy()};
+	
+	// The default number of games to play at each difficulty with each policy, and the default file to write to
+	private static final int DEFAULT_GAMES = 100;
+	private static final String DEFAULT_OUTPUT = "tournament.csv";
+	
+	// The time in millis between each click of the automatic player
+	private static final long CLICK_INTERVAL = Long.getLong("nexus.clickInterval", 500);
+	
+	// How far the automatic player misses the center of the ship which it chose, as the standard deviation
+	// of the distance in each direction, in pixels.  A player who never missed would never lose.
+	private static final double AIM_ERROR = Integer.getInteger("nexus.aimError", Ship.BASE_HALF_DIM);
+	
+	// The length of each step, in millis
+	private static final long TIMESTEP = Long.getLong("nexus.timestep", GameLoop.getTimestep(GamePanel.TICK_RATE));
+	
+	// The longest time in millis which a game is played for.  Games which are still going are stopped.
+	private static final long MAX_GAME_TIME = 60 * 60 * 1000;
+	
+	// The seed which the seeds of the games are made from
+	private static final long SEED = 124;
+	
+	// The number of nanoseconds in a millisecond
+	private static final double NANOS_PER_MILLI = 1e6;
+	
+	/**
+	 * Plays the tournament
+	 * @param args The number of games, the file to write to, the number of threads and the policies, all optional
+	 */
+	public static void main(String[] args) throws IOException {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+		String output = args.length > 1 ? args[1] : DEFAULT_OUTPUT;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		
+		List<ClickPolicy> policies = new ArrayList<ClickPolicy>();
+		if (args.length > 3) {
+			for (String name : args[3].split(",")) {
+				ClickPolicy policy = getPolicy(name.trim());
+				if (policy == null) {
+					System.out.println("Unknown policy: " + name);
+					System.exit(1);
+				}
+				policies.add(policy);
+			}
+		} else {
+			for (ClickPolicy policy : POLICIES)
+				policies.add(policy);
+		}
+		
+		PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8));
+		try {
+			Tournament tournament = new Tournament(policies.toArray(new ClickPolicy[policies.size()]), games, out);
+			tournament.run(threads);
+			tournament.printReport();
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * @param name The name of a policy
+	 * @return The policy with that name, or null if there is none
+	 */
+	public static ClickPolicy getPolicy(String name) {
+		for (ClickPolicy policy : POLICIES) {
+			if (policy.getName().equals(name))
+				return policy;
+		}
+		
+		return null;
+	}
+	
+	// The policies which games are played with
+	private ClickPolicy[] policies;
+	
+	// The number of games to play at each difficulty with each policy
+	private int games;
+	
+	// The CSV file which the results are written to
+	private PrintWriter out;
+	
+	// The number of games played, the total time in millis which the nexus survived for,
+	// and the total final score, at each difficulty with each policy
+	private int[][] played;
+	private double[][] survivalTime;
+	private double[][] finalScore;
+	
+	// The total number of steps simulated, and the time which the tournament took in nanoseconds
+	private long totalSteps = 0;
+	private long totalTime = 0;
+	
+	/**
+	 * Creates a Tournament, and writes the header of its CSV file
+	 * @param policies The policies to play games with
+	 * @param games The number of games to play at each difficulty with each policy
+	 * @param out The CSV file to write the results to
+	 */
+	public Tournament(ClickPolicy[] policies, int games, PrintWriter out) {
+		this.policies = policies;
+		this.games = games;
+		this.out = out;
+		
+		played = new int[DIFFICULTIES.length][policies.length];
+		survivalTime = new double[DIFFICULTIES.length][policies.length];
+		finalScore = new double[DIFFICULTIES.length][policies.length];
+		
+		out.println("difficulty,spawn_rate,policy,game,seed,timestep_ms,survival_s,finished,steps,score,clicks,kills,"
+				+ "failed_spawns,wall_ms,ticks_per_s");
+	}
+	
+	/**
+	 * Plays every game
+	 * @param threads The number of threads to play the games on
+	 */
+	public void run(int threads) {
+		int numGames = DIFFICULTIES.length * policies.length * games;
+		
+		long start = System.nanoTime();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new PlayTask(0, numGames));
+		} finally {
+			pool.shutdown();
+		}
+		totalTime = System.nanoTime() - start;
+	}
+	
+	/**
+	 * Prints the average survival time and score at each difficulty with each policy, and how fast the games were played
+	 */
+	public void printReport() {
+		System.out.printf("%-8s %-8s %8s %12s %10s%n", "level", "policy", "games", "survival s", "score");
+		for (int d = 0; d < DIFFICULTIES.length; d++) {
+			for (int p = 0; p < policies.length; p++) {
+				int n = Math.max(played[d][p], 1);
+				System.out.printf("%-8s %-8s %8d %12.1f %10.1f%n", DIFFICULTIES[d], policies[p].getName(),
+						played[d][p], survivalTime[d][p] / n / 1000, finalScore[d][p] / n);
+			}
+		}
+		
+		double seconds = totalTime / NANOS_PER_MILLI / 1000;
+		System.out.printf("Played %d steps in %.1f s (%.0f steps per second)%n", totalSteps, seconds, totalSteps / seconds);
+	}
+	
+	/**
+	 * Plays a single game, and writes its results
+	 * @param number The number of the game, which decides its difficulty, policy and seed
+	 */
+	private void play(int number) {
+		// Interleave the difficulties and policies, so that long and short games are spread out between the threads
+		int difficulty = number % DIFFICULTIES.length;
+		int policy = number / DIFFICULTIES.length % policies.length;
+		int game = number / DIFFICULTIES.length / policies.length;
+		
+		long seed = SEED * 1000003 + number;
+		World world = new World(SPAWN_RATES[difficulty], GameFrame.STARTING_LIFE, 0,
+				GamePanel.DEFAULT_WIDTH, GamePanel.DEFAULT_HEIGHT, new Random(seed));
+		world.setTimestep(TIMESTEP);
+		world.setWarnFailedSpawns(false);
+		
+		// The policy has its own Random object, so that its choices don't change where ships are spawned
+		Random random = new Random(~seed);
+		long stepsPerClick = Math.max(1, CLICK_INTERVAL / world.getTimestep());
+		long maxSteps = MAX_GAME_TIME / world.getTimestep();
+		
+		long start = System.nanoTime();
+		long steps = 0;
+		int clicks = 0;
+		int kills = 0;
+		while (!world.isOver() && steps < maxSteps) {
+			world.step();
+			steps++;
+			
+			if (steps % stepsPerClick == 0) {
+				Ship target = policies[policy].choose(world, random);
+				if (target != null) {
+					clicks++;
+					int x = (int) Math.round(target.getX() + random.nextGaussian() * AIM_ERROR);
+					int y = (int) Math.round(target.getY() + random.nextGaussian() * AIM_ERROR);
+					if (world.click(x, y))
+						kills++;
+				}
+			}
+		}
+		long time = System.nanoTime() - start;
+		
+		double survived = steps * world.getTimestep();
+		double wallMillis = time / NANOS_PER_MILLI;
+		// The CSV is always written with '.' as the decimal point, whatever the locale
+		String line = String.format(Locale.ROOT, "%s,%d,%s,%d,%d,%d,%.2f,%b,%d,%.0f,%d,%d,%d,%.3f,%.0f", 
+				DIFFICULTIES[difficulty], SPAWN_RATES[difficulty], policies[policy].getName(), game, seed, 
+				world.getTimestep(), survived / 1000, world.isOver(), steps, world.getScore(), clicks, kills, 
+				world.getFailedSpawns(), wallMillis, steps / (wallMillis / 1000));
+		
+		synchronized (this) {
+			out.println(line);
+			
+			played[difficulty][policy]++;
+			survivalTime[difficulty][policy] += survived;
+			finalScore[difficulty][policy] += world.getScore();
+			totalSteps += steps;
+		}
+	}
+	
+	/**
+	 * The PlayTask class plays a range of games, splitting it in half until there is one game left
+	 *
+	 * @author Michael Layzell
+	 *
+	 */
+	private class PlayTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		// The range of games to play
+		private int first;
+		private int last;
+		
+		/**
+		 * Creates a PlayTask
+		 * @param first The number of the first game to play
+		 * @param last One past the number of the last game to play
+		 */
+		public PlayTask(int first, int last) {
+			this.first = first;
+			this.last = last;
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (last - first > 1) {
+				int middle = (first + last) / 2;
+				invokeAll(new PlayTask(first, middle), new PlayTask(middle, last));
+				return;
+			}
+			
+			if (last > first)
+				play(first);
+		}
+	}
+	
+	/**
+	 * The RandomPolicy class clicks on a random moving ship
+	 *
+	 * @author Michael Layzell
+	 *
+	 */
+	private static class RandomPolicy implements ClickPolicy {
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ClickPolicy#getName()
+		 */
+		@Override
+		public String getName() {
+			return "random";
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ClickPolicy#choose(World, java.util.Random)
+		 */
+		@Override
+		public Ship choose(World world, Random random) {
+			int moving = 0;
+			for (int i = 0; i < world.getNumShips(); i++) {
+				if (world.getShip(i).isMoving())
+					moving++;
+			}
+			
+			if (moving == 0)
+				return null;
+			
+			// Find the chosen moving ship
+			int chosen = random.nextInt(moving);
+			for (int i = 0; i < world.getNumShips(); i++) {
+				Ship ship = world.getShip(i);
+				if (ship.isMoving() && chosen-- == 0)
+					return ship;
+			}
+			
+			return null;
+		}
+	}
+	
+	/**
+	 * The GreedyPolicy class clicks on the moving ship with the most links, which is worth the most points
+	 *
+	 * @author Michael Layzell
+	 *
+	 */
+	private static class GreedyPolicy implements ClickPolicy {
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ClickPolicy#getName()
+		 */
+		@Override
+		public String getName() {
+			return "greedy";
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ClickPolicy#choose(World, java.util.Random)
+		 */
+		@Override
+		public Ship choose(World world, Random random) {
+			Ship best = null;
+			for (int i = 0; i < world.getNumShips(); i++) {
+				Ship ship = world.getShip(i);
+				if (ship.isMoving() && (best == null || ship.getNumLinks() > best.getNumLinks()))
+					best = ship;
+			}
+			
+			return best;
+		}
+	}
+	
+	/**
+	 * The CenterPolicy class clicks on the moving ship which is nearest to the center of the world
+	 *
+	 * @author Michael Layzell
+	 *
+	 */
+	private static class CenterPolicy implements ClickPolicy {
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ClickPolicy#getName()
+		 */
+		@Override
+		public String getName() {
+			return "center";
+		}
+		
+		/*
+		 * (non-Javadoc)
+		 * @see ClickPolicy#choose(World, java.util.Random)
+		 */
+		@Override
+		public Ship choose(World world, Random random) {
+			double centerX = world.getWidth() / 2.0;
+			double centerY = world.getHeight() / 2.0;
+			
+			Ship best = null;
+			double bestDistance = Double.MAX_VALUE;
+			for (int i = 0; i < world.getNumShips(); i++) {
+				Ship ship = world.getShip(i);
+				if (!ship.isMoving())
+					continue;
+				
+				double dx = ship.getX() - centerX;
+				double dy = ship.getY() - centerY;
+				double distance = dx * dx + dy * dy;
+				if (distance < bestDistance) {
+					best = ship;
+					bestDistance = distance;
+				}
+			}
+			
+			return best;
+		}
+	}
+	
+}
@@ -0,0 +1,924 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class represents the world in which the game takes place.
+ * The World manages all of the game's logic, including spawning, collisions, movement, damage and scoring.
+ * It does not depend on Swing, so it can be simulated without a display, and faster than real time.
+ *
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class World {
+	
+	// The default length of each simulation step, in miliseconds
+	// The damage which ships do was balanced for steps of this length
+	public static final long DEFAULT_TIMESTEP = 20;
+	
+	// The maximum number of times which the spawner will attempt to spawn a ship before giving up
+	private static final int MAX_SPAWN_TRIALS = 10;
+	
+	// How far outside of the area being drawn a ship can be found in the grid and still be drawn inside it.
+	// Ships are drawn between their previous and current positions, and can be pushed apart by collisions in a step.
+	private static final int VIEW_MARGIN = Ship.MAX_HALF_DIM + 100;
+	
+	// The damage and points which each ship are worth
+	private static final double PER_MILI_DAMAGE = 0.05;
+	private static final double PER_SHIP_POINTS = 50;
+	
+	// The powers of two, which are how much more damage a ship does with each link
+	private static final double[] DAMAGE_SCALING = new double[64];
+	static {
+		for (int i = 0; i < DAMAGE_SCALING.length; i++)
+			DAMAGE_SCALING[i] = Math.pow(2, i);
+	}
+	
+	// The Random object used for random calculations
+	private Random random;
+	
+	// The bounds of the world
+	private int width;
+	private int height;
+	
+	// Whether the world is a large arena, whose bounds stay the same, rather than one which fills the window
+	private boolean largeArena;
+	
+	// The ships, stored as one array for each of their properties
+	private ShipStore store = new ShipStore();
+	
+	// The grid used to find ships which could be colliding, and the ships at a point or in an area.
+	// It is rebuilt at the end of each step, and again before it is next used if a ship is added or removed.
+	private ShipGrid grid = new ShipGrid();
+	private boolean gridValid = false;
+	
+	// The clusters of linked ships, kept up to date as ships are linked, unlinked, added and removed
+	private ClusterIndex clusterIndex = new ClusterIndex(store);
+	
+	// Moves the ships and finds collisions on several threads, or null to do it all on the calling thread
+	private ParallelSimulator simulator = null;
+	
+	// Whether each ship could be colliding with a ship after it, when the collisions are found by the simulator
+	private boolean[] pending = new boolean[16];
+	
+	// Finds collisions while the ships move during a step, or null to only find them where the ships are at its start
+	private SweptCollider sweptCollider = null;
+	
+	// Records everything which happens to the world, or null if it isn't being recorded
+	private Recorder recorder = null;
+	
+	// The effects in the world
+	private EffectManager effectManager = new EffectManager();
+	
+	// The renderer which draws the links between ships
+	private LinkRenderer linkRenderer = new LinkRenderer();
+	
+	// The id which will be given to the next ship which is created
+	private int nextShipId = 0;
+	
+	// The spawn rate
+	private double spawnRate;
+	private long spawnTime;
+	
+	// The number of ships which couldn't be spawned because there was no room, 
+	// and whether a warning is printed each time it happens
+	private int failedSpawns = 0;
+	private boolean warnFailedSpawns = true;
+	
+	// The length of each simulation step, in miliseconds
+	private long timestep = DEFAULT_TIMESTEP;
+	
+	// The life of the nexus, and the player's score
+	private double health;
+	private double score;
+	
+	// The sum of 2 ^ (number of links) over all of the ships.
+	// It is kept up to date as ships are added, linked, unlinked and removed, so the damage can be done in constant time.
+	// Every term is an integer, so the sum is exact.
+	private double damageScaling = 0;
+	
+	// The sum of the number of links of every ship, which is twice the number of links between ships
+	private int linkEnds = 0;
+	
+	/**
+	 * Creates a World
+	 * @param spawnRate The time in millis between each ship being spawned
+	 * @param initialHealth The starting life of the nexus
+	 * @param initialScore The starting score of the player
+	 * @param width The width of the world
+	 * @param height The height of the world
+	 * @param random The Random object used for all random calculations in the world
+	 */
+	public World(double spawnRate, double initialHealth, double initialScore, int width, int height, Random random) {
+		this(spawnRate, initialHealth, initialScore, width, height, false, random);
+	}
+	
+	/**
+	 * Creates a World
+	 * @param spawnRate The time in millis between each ship being spawned
+	 * @param initialHealth The starting life of the nexus
+	 * @param initialScore The starting score of the player
+	 * @param width The width of the world
+	 * @param height The height of the world
+	 * @param largeArena Whether the world is a large arena, whose bounds stay the same, rather than one which fills the window
+	 * @param random The Random object used for all random calculations in the world
+	 */
+	public World(double spawnRate, double initialHealth, double initialScore, int width, int height, 
+			boolean largeArena, Random random) {
+		this.spawnRate = spawnRate;
+		this.health = initialHealth;
+		this.score = initialScore;
+		this.width = width;
+		this.height = height;
+		this.largeArena = largeArena;
+		this.random = random;
+		
+		// Start with 4 drones spawned (in the first few ticks)
+		spawnTime = Math.round(4 * spawnRate);
+	}
+	
+	/**
+	 * Changes the bounds of the world
+	 * @param width The new width of the world
+	 * @param height The new height of the world
+	 */
+	public void setBounds(int width, int height) {
+		if (recorder != null)
+			recorder.recordBounds(width, height);
+		
+		this.width = width;
+		this.height = height;
+		gridValid = false;
+		clusterIndex.invalidateBounds();
+	}
+	
+	/**
+	 * @return The width of the world
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * @return The height of the world
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * @return Whether the world is a large arena, whose bounds stay the same, rather than one which fills the window
+	 */
+	public boolean isLargeArena() {
+		return largeArena;
+	}
+	
+	/**
+	 * @return The number of ships in the world
+	 */
+	public int getNumShips() {
+		return store.size();
+	}
+	
+	/**
+	 * Gets a ship in the world.  Ships are kept in the order which they were created.
+	 * @param index The index of the ship, between 0 and the number of ships
+	 * @return The ship
+	 */
+	public Ship getShip(int index) {
+		return store.getShip(index);
+	}
+	
+	/**
+	 * @return The ShipStore which holds the properties of the ships in the world
+	 */
+	public ShipStore getShipStore() {
+		return store;
+	}
+	
+	/**
+	 * Called by each ship when it is created
+	 * @return A number which identifies the ship, different from every other ship in the world
+	 */
+	public int createShipId() {
+		return nextShipId++;
+	}
+	
+	/**
+	 * Creates a ship in the world, without checking whether it is colliding with any other ship
+	 * @param x The x position of the ship
+	 * @param y The y position of the ship
+	 * @param dir The direction which the ship is moving
+	 * @param type The type of the ship
+	 * @return The new ship
+	 */
+	public Ship createShip(int x, int y, int dir, int type) {
+		int slot = store.add(x, y, dir, type);
+		Ship ship = new Ship(this, store, slot);
+		store.setShip(slot, ship);
+		clusterIndex.add(ship);
+		
+		// Ships are added to the end of the store, so the grid can be kept up to date without rebuilding it
+		if (gridValid)
+			grid.add(slot);
+		
+		damageScaling += getDamageScaling(0);
+		return ship;
+	}
+	
+	/**
+	 * @return The ClusterIndex which keeps track of the clusters of linked ships in the world
+	 */
+	public ClusterIndex getClusterIndex() {
+		return clusterIndex;
+	}
+	
+	/**
+	 * @return The EffectManager which manages the effects in the world
+	 */
+	public EffectManager getEffectManager() {
+		return effectManager;
+	}
+	
+	/**
+	 * @return The current life of the nexus
+	 */
+	public double getHealth() {
+		return health;
+	}
+	
+	/**
+	 * @return The player's current score
+	 */
+	public double getScore() {
+		return score;
+	}
+	
+	/**
+	 * @return The damage which the ships currently do to the nexus every DEFAULT_TIMESTEP millis
+	 */
+	public double getDamageRate() {
+		return damageScaling * PER_MILI_DAMAGE;
+	}
+	
+	/**
+	 * Called by a ship in the world when its number of links changes, so that the damage rate stays up to date
+	 * @param oldLinks The number of links which the ship had before the change
+	 * @param newLinks The number of links which the ship has now
+	 */
+	public void linkCountChanged(int oldLinks, int newLinks) {
+		damageScaling += getDamageScaling(newLinks) - getDamageScaling(oldLinks);
+		linkEnds += newLinks - oldLinks;
+	}
+	
+	/**
+	 * @return The number of links between the ships in the world
+	 */
+	public int getNumLinks() {
+		return linkEnds / 2;
+	}
+	
+	/**
+	 * @return Whether or not the nexus has been destroyed
+	 */
+	public boolean isOver() {
+		return health <= 0;
+	}
+	
+	/**
+	 * Changes the length of each simulation step
+	 * @param timestep The length of each step, in millis
+	 */
+	public void setTimestep(long timestep) {
+		if (recorder != null)
+			recorder.recordTimestep(timestep);
+		
+		this.timestep = timestep;
+	}
+	
+	/**
+	 * @return The number of ships which couldn't be spawned because every place tried was taken by another ship
+	 */
+	public int getFailedSpawns() {
+		return failedSpawns;
+	}
+	
+	/**
+	 * Chooses whether a warning is printed each time a ship can't be spawned.
+	 * Long headless simulations can turn it off, and read getFailedSpawns() instead.
+	 * @param warn Whether or not to print the warnings
+	 */
+	public void setWarnFailedSpawns(boolean warn) {
+		warnFailedSpawns = warn;
+	}
+	
+	/**
+	 * @return The length of each simulation step, in millis
+	 */
+	public long getTimestep() {
+		return timestep;
+	}
+	
+	/**
+	 * Changes the number of threads which the ships are moved and collisions are found on.
+	 * Colliding ships are always found first and then linked on the calling thread, in the same order, 
+	 * so the game is the same for any number of threads.
+	 * @param parallelism The number of threads
+	 */
+	public void setParallelism(int parallelism) {
+		if (recorder != null)
+			recorder.recordParallelism(parallelism);
+		
+		if (parallelism > 1)
+			simulator = new ParallelSimulator(parallelism);
+		else
+			simulator = null;
+	}
+	
+	/**
+	 * @return The number of threads which the ships are moved and collisions are found on
+	 */
+	public int getParallelism() {
+		if (simulator == null)
+			return 1;
+		
+		return simulator.getParallelism();
+	}
+	
+	/**
+	 * Enables or disables swept collisions.  With swept collisions, ships which touch while they move during a step
+	 * are collided where they touch, so that fast ships can't pass through eachother in long steps.
+	 * Ships are moved on the calling thread while swept collisions are enabled.
+	 * @param swept Whether or not to enable swept collisions
+	 */
+	public void setSweptCollisions(boolean swept) {
+		if (recorder != null)
+			recorder.recordSwept(swept);
+		
+		if (!swept)
+			sweptCollider = null;
+		else if (sweptCollider == null)
+			sweptCollider = new SweptCollider();
+	}
+	
+	/**
+	 * @return Whether or not swept collisions are enabled
+	 */
+	public boolean isSweptCollisions() {
+		return sweptCollider != null;
+	}
+	
+	/**
+	 * Starts recording everything which happens to the world to a file, so that the game can be replayed by Replay.
+	 * Must be called before the first step.
+	 * @param path The file to record to.  It must not already exist.
+	 * @param seed The seed which the world's Random object was created with
+	 * @throws IOException If the file can't be created
+	 */
+	public void startRecording(Path path, long seed) throws IOException {
+		endRecording();
+		recorder = new Recorder(path, seed, spawnRate, health, score, timestep, width, height, 
+				largeArena, getParallelism());
+	}
+	
+	/**
+	 * Records the final life and score, and stops recording.  Called automatically when the game is over.
+	 */
+	public void endRecording() {
+		if (recorder != null) {
+			recorder.end(health, score);
+			recorder = null;
+		}
+	}
+	
+	/**
+	 * Gives the world's Random object a new seed
+	 * @param seed The new seed
+	 */
+	public void reseed(long seed) {
+		if (recorder != null)
+			recorder.recordReseed(seed);
+		
+		random.setSeed(seed);
+	}
+	
+	/**
+	 * @return The number of bytes which writeSnapshot() writes
+	 */
+	public int getSnapshotSize() {
+		int linkSize = 0;
+		for (int i = 0; i < store.size(); i++)
+			linkSize += 4 + 4 * store.getNumLinks(i);
+		
+		return 8 + 8 + 8 + 8 + 8 + 8 + 4 + 4 + 1 + 4 + store.getSnapshotSize() + 4 * store.size() + linkSize 
+				+ effectManager.getSnapshotSize();
+	}
+	
+	/**
+	 * Writes the whole state of the world to a buffer, so that it can be restored by readSnapshot().
+	 * The world's Random object is given a new seed, which is written, so that this world 
+	 * and the restored world continue in the same way.
+	 * @param buffer The buffer to write to
+	 */
+	public void writeSnapshot(ByteBuffer buffer) {
+		long seed = random.nextLong();
+		reseed(seed);
+		
+		buffer.putLong(seed);
+		buffer.putDouble(spawnRate);
+		buffer.putLong(spawnTime);
+		buffer.putLong(timestep);
+		buffer.putDouble(health);
+		buffer.putDouble(score);
+		buffer.putInt(width);
+		buffer.putInt(height);
+		buffer.put((byte) (largeArena ? 1 : 0));
+		buffer.putInt(nextShipId);
+		
+		// The ships, then their ids, then the slots of the ships which each ship is linked to
+		store.write(buffer);
+		for (int i = 0; i < store.size(); i++)
+			buffer.putInt(store.getShip(i).getId());
+		for (int i = 0; i < store.size(); i++) {
+			Ship ship = store.getShip(i);
+			buffer.putInt(ship.getNumLinks());
+			for (Ship other : ship.getLinks())
+				buffer.putInt(other.getSlot());
+		}
+		
+		effectManager.write(buffer);
+	}
+	
+	/**
+	 * Creates a world from a snapshot written by writeSnapshot()
+	 * @param buffer The buffer to read from
+	 * @return The world
+	 */
+	public static World readSnapshot(ByteBuffer buffer) {
+		long seed = buffer.getLong();
+		double spawnRate = buffer.getDouble();
+		long spawnTime = buffer.getLong();
+		long timestep = buffer.getLong();
+		double health = buffer.getDouble();
+		double score = buffer.getDouble();
+		int width = buffer.getInt();
+		int height = buffer.getInt();
+		boolean largeArena = buffer.get() != 0;
+		
+		World world = new World(spawnRate, health, score, width, height, largeArena, new Random(seed));
+		world.spawnTime = spawnTime;
+		world.timestep = timestep;
+		world.nextShipId = buffer.getInt();
+		
+		ShipStore store = world.store;
+		store.read(buffer);
+		for (int i = 0; i < store.size(); i++) {
+			store.setShip(i, new Ship(world, store, i, buffer.getInt()));
+			world.clusterIndex.add(store.getShip(i));
+			world.damageScaling += getDamageScaling(0);
+		}
+		for (int i = 0; i < store.size(); i++) {
+			Ship ship = store.getShip(i);
+			int numLinks = buffer.getInt();
+			for (int n = 0; n < numLinks; n++)
+				ship.restoreLink(store.getShip(buffer.getInt()));
+		}
+		
+		world.effectManager.read(buffer);
+		return world;
+	}
+	
+	/**
+	 * Advances the world by a single step of 'timestep' millis
+	 */
+	public void step() {
+		// Nothing happens once the game is over
+		if (isOver())
+			return;
+		
+		if (recorder != null)
+			recorder.recordTick();
+		
+		// Time each phase of the step if the profiler is enabled
+		long stepStart = Profiler.start();
+		
+		// Increment spawntime
+		spawnTime += timestep;
+		
+		// Spawn a ship.  If ships are spawned more often than the world is stepped, 
+		// spawn as many ships as fit into a step, but no more, so that the first ships are still spawned one at a time.
+		int maxSpawns = (int) Math.max(1, timestep / spawnRate);
+		for (int n = 0; n < maxSpawns && spawnTime >= spawnRate; n++) {
+			spawnShip();
+			spawnTime -= spawnRate;
+		}
+		long time = Profiler.lap(Profiler.SPAWN, stepStart);
+		
+		// Animate the effects
+		effectManager.tick(timestep);
+		time = Profiler.lap(Profiler.EFFECTS, time);
+		
+		// Remember where the ships were, so that they can be drawn between their old and new positions
+		store.savePositions();
+		
+		// Check for collisions between the ships
+		// Only ships in neighbouring cells of the grid can be colliding, so only they are tested
+		updateGrid();
+		
+		if (simulator != null)
+			collideParallel();
+		else
+			collideSerial();
+		time = Profiler.lap(Profiler.COLLISIONS, time);
+		
+		// Update all of the ships
+		if (sweptCollider != null)
+			moveSwept();
+		else if (simulator != null)
+			simulator.tickAll(store, timestep, width, height);
+		else
+			store.tickAll(timestep, width, height);
+		
+		// Put the ships in their new cells, so that clicks before the next step can be found quickly
+		grid.rebuild(store, width, height);
+		gridValid = true;
+		clusterIndex.shipsMoved();
+		time = Profiler.lap(Profiler.MOVEMENT, time);
+		
+		// Do damage
+		doDamage(getDamageRate() * timestep / DEFAULT_TIMESTEP);
+		Profiler.lap(Profiler.DAMAGE, time);
+		
+		if (Profiler.lap(Profiler.STEP, stepStart) != 0)
+			Profiler.setCounts(store.size(), getNumLinks(), effectManager.getNumEffects(), 
+					clusterIndex.getNumClusters(), clusterIndex.getLargestSize());
+		
+		if (isOver())
+			endRecording();
+	}
+	
+	/**
+	 * Finds and links the colliding ships one ship at a time
+	 */
+	private void collideSerial() {
+		for (int i = 0; i < store.size(); i++)
+			collideShip(i);
+	}
+	
+	/**
+	 * Finds the colliding ships on the simulator's threads, and then links them on this thread in the same order as
+	 * collideSerial().  Only the ships which are colliding with a ship after them are checked again, so whenever
+	 * a collision moves two ships, the ships which they now touch are marked to be checked too.
+	 */
+	private void collideParallel() {
+		PairBuffer found = simulator.findPairs(grid);
+		
+		if (pending.length < store.size())
+			pending = new boolean[Math.max(store.size(), 2 * pending.length)];
+		Arrays.fill(pending, 0, store.size(), false);
+		for (int n = 0; n < found.size(); n++)
+			pending[found.getFirst(n)] = true;
+		
+		for (int i = 0; i < store.size(); i++) {
+			if (pending[i])
+				collideShip(i);
+		}
+	}
+	
+	/**
+	 * Links a ship with each ship after it which it is colliding with, in order.
+	 * Whenever the ship is moved apart from another ship, it is checked again against the ships after that one.
+	 * @param i The slot of the ship
+	 */
+	private void collideShip(int i) {
+		// Only try ships with indexes greater than i
+		int numFound = grid.query(store.getX(i), store.getY(i), i);
+		for (int n = 0; n < numFound; n++) {
+			int j = grid.getFound(n);
+			
+			if (store.areColliding(i, j)) {
+				collide(i, j);
+				grid.update(i);
+				grid.update(j);
+				
+				// The moved ships could now be touching ships which weren't found by the simulator
+				if (simulator != null) {
+					markColliding(i);
+					markColliding(j);
+				}
+				
+				// Ship i has moved, so find the remaining ships which it could now be colliding with
+				numFound = grid.query(store.getX(i), store.getY(i), j);
+				n = -1;
+			}
+		}
+	}
+	
+	/**
+	 * Marks each pair of ships which a ship is colliding with to be checked by collideParallel()
+	 * @param slot The slot of the ship
+	 */
+	private void markColliding(int slot) {
+		int numFound = grid.query(store.getX(slot), store.getY(slot), -1);
+		for (int n = 0; n < numFound; n++) {
+			int other = grid.getFound(n);
+			if (other != slot && store.areColliding(slot, other))
+				pending[Math.min(slot, other)] = true;
+		}
+	}
+	
+	/**
+	 * Moves the ships through the step, colliding every pair of ships which touch on the way
+	 */
+	private void moveSwept() {
+		grid.rebuild(store, width, height);
+		
+		sweptCollider.start(store, grid, timestep, width, height);
+		while (sweptCollider.nextImpact()) {
+			collide(sweptCollider.getFirst(), sweptCollider.getSecond());
+			sweptCollider.collided();
+		}
+		sweptCollider.finish();
+	}
+	
+	/**
+	 * Bounces two colliding ships off of eachother, and links them together
+	 * @param i The slot of the first ship
+	 * @param j The slot of the second ship
+	 */
+	private void collide(int i, int j) {
+		// The ships are colliding, link them and bounce them off of eachother
+		store.bounce(i);
+		store.bounce(j);
+		
+		// Move the ships apart from eachother
+		store.tick(i, 3 * 20 * Ship.HALF_DIM_SCALING, width, height);
+		store.tick(j, 3 * 20 * Ship.HALF_DIM_SCALING, width, height);
+		
+		// Finally, link the two together
+		store.getShip(i).link(store.getShip(j));
+	}
+	
+	/**
+	 * Handles a click at the point (x, y), destroying the ship which was clicked on if it is moving.
+	 * If ships overlap, the one which is drawn on top is clicked.
+	 * @param x The X coordinate of the click
+	 * @param y The Y coordinate of the click
+	 * @return Whether or not a ship was destroyed
+	 */
+	public boolean click(int x, int y) {
+		if (recorder != null)
+			recorder.recordClick(x, y);
+		
+		// Attempt to destroy the ship
+		Ship theShip = findShipAt(x, y);
+		if (theShip == null || !store.isMoving(theShip.getSlot()))
+			return false;
+		
+		destroyShip(theShip);
+		return true;
+	}
+	
+	/**
+	 * Handles the player selecting a rectangle, destroying every moving ship which overlaps it
+	 * @param x1 The X coordinate of one corner of the rectangle
+	 * @param y1 The Y coordinate of one corner of the rectangle
+	 * @param x2 The X coordinate of the opposite corner of the rectangle
+	 * @param y2 The Y coordinate of the opposite corner of the rectangle
+	 * @return The number of ships which were destroyed
+	 */
+	public int select(int x1, int y1, int x2, int y2) {
+		if (recorder != null)
+			recorder.recordSelect(x1, y1, x2, y2);
+		
+		// Only the ships which were moving when they were selected are destroyed.
+		// Destroying a ship removes its links, which can set the ships which it was linked to moving again.
+		List<Ship> selected = findShipsIn(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2));
+		List<Ship> moving = new ArrayList<Ship>(selected.size());
+		for (Ship ship : selected) {
+			if (store.isMoving(ship.getSlot()))
+				moving.add(ship);
+		}
+		
+		for (Ship ship : moving)
+			destroyShip(ship);
+		
+		return moving.size();
+	}
+	
+	/**
+	 * Finds the ship at a point.  If ships overlap, the one which is drawn on top is found.
+	 * @param x The X coordinate of the point
+	 * @param y The Y coordinate of the point
+	 * @return The ship, or null if there is no ship at the point
+	 */
+	public Ship findShipAt(double x, double y) {
+		updateGrid();
+		
+		int slot = grid.findTopmost(x, y);
+		if (slot == -1)
+			return null;
+		
+		return store.getShip(slot);
+	}
+	
+	/**
+	 * Finds every ship which overlaps a rectangle
+	 * @param minX The X coordinate of the left side of the rectangle
+	 * @param minY The Y coordinate of the top of the rectangle
+	 * @param maxX The X coordinate of the right side of the rectangle
+	 * @param maxY The Y coordinate of the bottom of the rectangle
+	 * @return The ships, in the order which they are drawn
+	 */
+	public List<Ship> findShipsIn(double minX, double minY, double maxX, double maxY) {
+		updateGrid();
+		return getFoundShips(grid.queryRect(minX, minY, maxX, maxY));
+	}
+	
+	/**
+	 * Finds every ship which overlaps a circle
+	 * @param x The X coordinate of the center of the circle
+	 * @param y The Y coordinate of the center of the circle
+	 * @param radius The radius of the circle
+	 * @return The ships, in the order which they are drawn
+	 */
+	public List<Ship> findShipsNear(double x, double y, double radius) {
+		updateGrid();
+		return getFoundShips(grid.queryRadius(x, y, radius));
+	}
+	
+	/**
+	 * @param numFound The number of ships found by the grid's last query
+	 * @return The ships found by the grid's last query
+	 */
+	private List<Ship> getFoundShips(int numFound) {
+		List<Ship> ships = new ArrayList<Ship>(numFound);
+		for (int n = 0; n < numFound; n++)
+			ships.add(store.getShip(grid.getFound(n)));
+		
+		return ships;
+	}
+	
+	/**
+	 * Rebuilds the grid if ships have been added or removed, or the world has changed size, since it was last built
+	 */
+	private void updateGrid() {
+		if (!gridValid) {
+			grid.rebuild(store, width, height);
+			gridValid = true;
+		}
+	}
+	
+	/**
+	 * Destroys a ship which the player has clicked on, rewarding the player with points
+	 * @param theShip The ship
+	 */
+	private void destroyShip(Ship theShip) {
+		// Reward the player with points
+		int pointsGain = (int) (PER_SHIP_POINTS * (1 + theShip.getNumLinks()));
+		score += pointsGain;
+		
+		// Destroy it
+		theShip.dispose();
+		
+		// Display the points display
+		effectManager.createPointsDisplay(theShip.getX(), theShip.getY(), pointsGain, Color.CYAN);
+		
+		// Remove the ship from the list
+		removeShip(theShip);
+	}
+	
+	/**
+	 * Paints the links, effects and ships in the world
+	 * @param g The graphics context
+	 * @param alpha How far between the previous step and the current step to draw the ships, between 0 and 1
+	 */
+	public void paint(Graphics2D g, double alpha) {
+		paint(g, alpha, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, 
+				Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+	
+	/**
+	 * Paints the links, effects and ships which are inside an area of the world.
+	 * The ships are found using the grid, so the time taken depends on how many ships are in the area, 
+	 * rather than how many are in the world.
+	 * @param g The graphics context, which is drawing in world coordinates
+	 * @param alpha How far between the previous step and the current step to draw the ships, between 0 and 1
+	 * @param minX The X coordinate of the left side of the area
+	 * @param minY The Y coordinate of the top of the area
+	 * @param maxX The X coordinate of the right side of the area
+	 * @param maxY The Y coordinate of the bottom of the area
+	 */
+	public void paint(Graphics2D g, double alpha, double minX, double minY, double maxX, double maxY) {
+		long time = Profiler.start();
+		
+		// Draw the links.  A link can cross the area when neither of its ships is inside it, but every link 
+		// is inside the bounding box of its cluster, so the links of ships in clusters outside of the area are skipped.
+		// The ships are still checked in the order of their slots, so the links are drawn in the same order.
+		linkRenderer.setView(minX, minY, maxX, maxY);
+		for (int i = 0; i < store.size(); i++) {
+			if (store.getNumLinks(i) > 0) {
+				Ship ship = store.getShip(i);
+				if (ship.getCluster().intersects(minX - VIEW_MARGIN, minY - VIEW_MARGIN, 
+						maxX + VIEW_MARGIN, maxY + VIEW_MARGIN))
+					ship.paint_links(linkRenderer, alpha);
+			}
+		}
+		linkRenderer.paint(g);
+		time = Profiler.lap(Profiler.PAINT_LINKS, time);
+		
+		// Draw the effects
+		effectManager.paintEffects(g, minX, minY, maxX, maxY);
+		time = Profiler.lap(Profiler.PAINT_EFFECTS, time);
+		
+		// Draw the ships themselves, in the order of their slots
+		updateGrid();
+		int numFound = grid.queryRect(minX - VIEW_MARGIN, minY - VIEW_MARGIN, maxX + VIEW_MARGIN, maxY + VIEW_MARGIN);
+		for (int n = 0; n < numFound; n++) {
+			store.getShip(grid.getFound(n)).paint(g, alpha);
+		}
+		Profiler.lap(Profiler.PAINT_SHIPS, time);
+	}
+	
+	/**
+	 * Removes a ship from the world
+	 * @param ship The ship to remove
+	 */
+	private void removeShip(Ship ship) {
+		store.remove(ship.getSlot());
+		clusterIndex.remove(ship);
+		gridValid = false;
+		damageScaling -= getDamageScaling(ship.getNumLinks());
+	}
+	
+	/**
+	 * Gets the damage which a ship does to the nexus every DEFAULT_TIMESTEP millis
+	 * @param numLinks The number of links which the ship has
+	 * @return The damage
+	 */
+	public static double getShipDamageRate(int numLinks) {
+		return getDamageScaling(numLinks) * PER_MILI_DAMAGE;
+	}
+	
+	/**
+	 * Gets how much more damage a ship does because of its links
+	 * @param numLinks The number of links which the ship has
+	 * @return 2 ^ numLinks
+	 */
+	private static double getDamageScaling(int numLinks) {
+		// Damage scales exponentially
+		if (numLinks < DAMAGE_SCALING.length)
+			return DAMAGE_SCALING[numLinks];
+		
+		return Math.pow(2, numLinks);
+	}
+	
+	/**
+	 * Does damage to the nexus
+	 * @param damage The damage which has been dealt to the nexus
+	 */
+	private void doDamage(double damage) {
+		health -= damage;
+		
+		if (health < 0)
+			health = 0;
+	}
+	
+	/**
+	 * Spawn a ship at a random point in the world
+	 */
+	private void spawnShip() {
+		for (int trial = 0; trial < MAX_SPAWN_TRIALS; trial++) {
+			int x;
+			int y;
+			try {
+				x = random.nextInt(width - Ship.BASE_HALF_DIM) + Ship.BASE_HALF_DIM;
+				y = random.nextInt(height - Ship.BASE_HALF_DIM) + Ship.BASE_HALF_DIM;
+			} catch (IllegalArgumentException e) {
+				return;
+			}
+			
+			int dir = random.nextInt(4); // Random int in [0, 4) = [0, 3]
+			int type = random.nextInt(2); // Random int in [0, 2) = [0, 1]
+			
+			// The ship is colliding with another ship, better try again!
+			updateGrid();
+			if (grid.isColliding(x, y, Ship.BASE_HALF_DIM))
+				continue;
+			
+			// Not colliding with any of the ships, create it and return
+			createShip(x, y, dir, type);
+			return;
+		}
+		
+		failedSpawns++;
+		if (warnFailedSpawns)
+			System.out.println("WARNING: MAX_SPAWN_TRIALS Exceeded!");
+	}
+}
@@ -0,0 +1,134 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the bounding boxes kept by the ClusterIndex match the boxes found from the ships in each cluster
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class ClusterBoundsTest {
+	
+	// The size of the world
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 600;
+	
+	/**
+	 * Plays a game with clicks and a resize, checking every cluster's bounding box after each step and click
+	 */
+	@Test
+	public void boundsMatchShips() {
+		World world = new World(50, 1e9, 0, WIDTH, HEIGHT, new Random(3));
+		world.setWarnFailedSpawns(false);
+		Random random = new Random(4);
+		
+		for (int i = 0; i < 3000; i++) {
+			world.step();
+			assertBounds(world, "step " + i);
+			
+			if (i % 5 == 0) {
+				world.click(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+				assertBounds(world, "click after step " + i);
+			}
+			
+			if (i == 1500)
+				world.setBounds(WIDTH / 2, HEIGHT / 2);
+		}
+	}
+	
+	/**
+	 * Builds stationary clusters, then merges, stops and splits a cluster with a moving ship, 
+	 * checking every cluster's bounding box after each change and step
+	 */
+	@Test
+	public void boundsFollowMergesAndSplits() {
+		World world = new World(Double.MAX_VALUE, 1e9, 0, 4000, 4000, new Random(1));
+		
+		// Two clusters where every ship is linked to every other, so they have stopped moving
+		Ship[] first = createClique(world, 1000);
+		Ship[] second = createClique(world, 2000);
+		assertBounds(world, "cliques");
+		
+		for (int i = 0; i < 3; i++) {
+			world.step();
+			assertBounds(world, "stationary step " + i);
+		}
+		
+		// A ship which moves left, away from the others
+		Ship mover = world.createShip(3000, 3000, Ship.DIR_LEFT, Ship.TYPE_FAST);
+		for (int i = 0; i < 5; i++) {
+			world.step();
+			assertBounds(world, "moving step " + i);
+		}
+		
+		// Merge it into the first cluster while both bounding boxes are up to date
+		mover.link(first[0]);
+		assertBounds(world, "merged");
+		world.step();
+		assertBounds(world, "merged step");
+		
+		// Stop it by linking it into the second cluster.  Its last move is still drawn for one more step.
+		for (int i = 0; i < 4; i++)
+			mover.link(second[i]);
+		assertBounds(world, "stopped");
+		for (int i = 0; i < 2; i++) {
+			world.step();
+			assertBounds(world, "stopped step " + i);
+		}
+		
+		// Split the first cluster off again
+		mover.unlink(first[0]);
+		assertBounds(world, "split");
+		world.step();
+		assertBounds(world, "split step");
+	}
+	
+	/**
+	 * Creates six ships in a row, each linked to every other
+	 * @param world The world
+	 * @param y The Y coordinate of the row
+	 * @return The ships
+	 */
+	private static Ship[] createClique(World world, int y) {
+		Ship[] ships = new Ship[ShipStore.MAX_LINKS + 1];
+		for (int i = 0; i < ships.length; i++)
+			ships[i] = world.createShip(1000 + 100 * i, y, Ship.DIR_RIGHT, Ship.TYPE_FAST);
+		
+		for (int i = 0; i < ships.length; i++) {
+			for (int j = i + 1; j < ships.length; j++)
+				ships[i].link(ships[j]);
+		}
+		return ships;
+	}
+	
+	/**
+	 * Checks the bounding box of every cluster
+	 * @param world The world
+	 * @param message The message to fail with
+	 */
+	private static void assertBounds(World world, String message) {
+		ShipStore store = world.getShipStore();
+		for (ClusterIndex.Cluster cluster : world.getClusterIndex().getClusters()) {
+			double minX = Double.POSITIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (Ship ship : cluster.getShips()) {
+				int slot = ship.getSlot();
+				minX = Math.min(minX, Math.min(store.getX(slot), store.getPrevX(slot)));
+				minY = Math.min(minY, Math.min(store.getY(slot), store.getPrevY(slot)));
+				maxX = Math.max(maxX, Math.max(store.getX(slot), store.getPrevX(slot)));
+				maxY = Math.max(maxY, Math.max(store.getY(slot), store.getPrevY(slot)));
+			}
+			
+			assertEquals(minX, cluster.getMinX(), message);
+			assertEquals(minY, cluster.getMinY(), message);
+			assertEquals(maxX, cluster.getMaxX(), message);
+			assertEquals(maxY, cluster.getMaxY(), message);
+		}
+	}
+	
+}
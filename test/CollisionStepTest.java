@@ -0,0 +1,133 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that stepping a world collides its ships exactly as the original loop did,
+ * which tested every pair of ships in order and bounced, pushed apart and linked each colliding pair as it found it
+ *
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class CollisionStepTest {
+	
+	// The size of the world
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 600;
+	
+	// The number of steps to compare
+	private static final int STEPS = 100;
+	
+	/**
+	 * Steps crowded and sparse worlds on one and several threads next to the original loop,
+	 * and checks that every ship is in the same place, moving the same way and linked to the same ships after each step
+	 */
+	@Test
+	public void stepMatchesBruteForce() {
+		for (int numShips : new int[] {60, 300}) {
+			for (long seed = 0; seed < 10; seed++) {
+				World expected = createWorld(seed, numShips);
+				World serial = createWorld(seed, numShips);
+				World parallel = createWorld(seed, numShips);
+				parallel.setParallelism(4);
+				
+				for (int step = 0; step < STEPS; step++) {
+					stepBruteForce(expected);
+					serial.step();
+					parallel.step();
+					
+					String message = numShips + " ships, seed " + seed + ", step " + step;
+					assertSameShips(expected, serial, message);
+					assertSameShips(expected, parallel, message + ", 4 threads");
+				}
+				
+				parallel.setParallelism(1);
+			}
+		}
+	}
+	
+	/**
+	 * Creates a world with ships at random points, which never spawns any more ships
+	 * @param seed The seed to place the ships with
+	 * @param numShips The number of ships
+	 * @return The world
+	 */
+	private static World createWorld(long seed, int numShips) {
+		World world = new World(Double.MAX_VALUE, 1e9, 0, WIDTH, HEIGHT, new Random(seed));
+		world.setWarnFailedSpawns(false);
+		
+		Random random = new Random(seed);
+		for (int i = 0; i < numShips; i++) {
+			world.createShip(random.nextInt(WIDTH), random.nextInt(HEIGHT), random.nextInt(4),
+					random.nextBoolean() ? Ship.TYPE_FAST : Ship.TYPE_NORMAL);
+		}
+		return world;
+	}
+	
+	/**
+	 * Steps a world's ships the way that the original loop did, testing every pair of ships
+	 * @param world The world
+	 */
+	private static void stepBruteForce(World world) {
+		ShipStore store = world.getShipStore();
+		
+		for (int i = 0; i < store.size(); i++) {
+			// Only try ships with indexes greater than i
+			for (int j = i + 1; j < store.size(); j++) {
+				if (store.areColliding(i, j)) {
+					// The ships are colliding, link them and bounce them off of eachother
+					store.bounce(i);
+					store.bounce(j);
+					
+					// Move the ships apart from eachother
+					store.tick(i, 3 * 20 * Ship.HALF_DIM_SCALING, WIDTH, HEIGHT);
+					store.tick(j, 3 * 20 * Ship.HALF_DIM_SCALING, WIDTH, HEIGHT);
+					
+					// Finally, link the two together
+					store.getShip(i).link(store.getShip(j));
+				}
+			}
+		}
+		
+		// Update all of the ships
+		store.tickAll(world.getTimestep(), WIDTH, HEIGHT);
+	}
+	
+	/**
+	 * Checks that two worlds have their ships in the same places, moving the same way and linked to the same ships
+	 * @param expected The world stepped by the original loop
+	 * @param actual The world stepped by World.step()
+	 * @param message The message to show if the worlds are different
+	 */
+	private static void assertSameShips(World expected, World actual, String message) {
+		assertEquals(expected.getNumShips(), actual.getNumShips(), message);
+		assertEquals(expected.getNumLinks(), actual.getNumLinks(), message);
+		
+		for (int i = 0; i < expected.getNumShips(); i++) {
+			Ship a = expected.getShip(i);
+			Ship b = actual.getShip(i);
+			assertEquals(a.getX(), b.getX(), message + ", ship " + i);
+			assertEquals(a.getY(), b.getY(), message + ", ship " + i);
+			assertEquals(expected.getShipStore().getDir(i), actual.getShipStore().getDir(i), message + ", ship " + i);
+			assertEquals(getLinkedSlots(a), getLinkedSlots(b), message + ", ship " + i);
+		}
+	}
+	
+	/**
+	 * @param ship A ship
+	 * @return The slots of the ships which the ship is linked to, in order
+	 */
+	private static List<Integer> getLinkedSlots(Ship ship) {
+		List<Integer> slots = new ArrayList<Integer>();
+		for (Ship other : ship.getLinks())
+			slots.add(other.getSlot());
+		Collections.sort(slots);
+		return slots;
+	}
+	
+}
@@ -0,0 +1,134 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the damage rate which the world keeps up to date matches the damage rate found by summing over every ship,
+ * as GamePanel.tick used to do, after ships are spawned, linked, unlinked and destroyed
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class DamageTest {
+	
+	// The damage which a ship with no links does every World.DEFAULT_TIMESTEP millis
+	private static final double PER_MILI_DAMAGE = 0.05;
+	
+	// The size of the world
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 600;
+	
+	/**
+	 * Links, unlinks and destroys random ships, checking the damage rate after every change
+	 */
+	@Test
+	public void damageRateMatchesRecount() {
+		for (long seed = 0; seed < 10; seed++) {
+			Random random = new Random(seed);
+			World world = new World(Double.MAX_VALUE, Double.MAX_VALUE, 0, WIDTH, HEIGHT, new Random(seed));
+			
+			for (int i = 0; i < 200; i++)
+				world.createShip(random.nextInt(WIDTH), random.nextInt(HEIGHT), random.nextInt(4), random.nextInt(2));
+			assertRecounted(world, "");
+			
+			for (int n = 0; n < 2000 && world.getNumShips() > 1; n++) {
+				Ship a = world.getShip(random.nextInt(world.getNumShips()));
+				Ship b = world.getShip(random.nextInt(world.getNumShips()));
+				
+				int action = random.nextInt(4);
+				if (action < 2 && a != b) {
+					a.link(b);
+				} else if (action == 2) {
+					for (Ship other : a.getLinks()) {
+						a.unlink(other);
+						break;
+					}
+				} else {
+					// Destroying a ship removes it from the links of each of its neighbours
+					world.click((int) a.getX(), (int) a.getY());
+				}
+				
+				assertRecounted(world, "seed " + seed + ", change " + n);
+			}
+		}
+	}
+	
+	/**
+	 * Destroys every ship in a heavily linked world, so that each destroyed ship has many neighbours
+	 */
+	@Test
+	public void disposingLinkedShipsMatchesRecount() {
+		Random random = new Random(124);
+		World world = new World(Double.MAX_VALUE, Double.MAX_VALUE, 0, WIDTH, HEIGHT, new Random(124));
+		
+		for (int i = 0; i < 100; i++)
+			world.createShip(random.nextInt(WIDTH), random.nextInt(HEIGHT), random.nextInt(4), random.nextInt(2));
+		for (int i = 0; i < 100; i++) {
+			for (int j = i + 1; j < Math.min(100, i + 4); j++)
+				world.getShip(i).link(world.getShip(j));
+		}
+		
+		// Ships with too many links can't be clicked, so unlink them first
+		while (world.getNumShips() > 0) {
+			Ship ship = world.getShip(random.nextInt(world.getNumShips()));
+			while (!ship.isMoving()) {
+				for (Ship other : ship.getLinks()) {
+					ship.unlink(other);
+					break;
+				}
+			}
+			
+			world.click((int) ship.getX(), (int) ship.getY());
+			assertRecounted(world, "");
+		}
+		assertEquals(0, world.getDamageRate(), 0);
+	}
+	
+	/**
+	 * Steps a spawning world and checks that the life lost in each step is the recounted damage.
+	 * The damage is done at the end of the step, after ships have spawned and linked.
+	 */
+	@Test
+	public void damageDoneMatchesRecount() {
+		World world = new World(250, 1e9, 0, WIDTH, HEIGHT, new Random(7));
+		world.setWarnFailedSpawns(false);
+		Random random = new Random(7);
+		
+		for (int step = 0; step < 3000; step++) {
+			double health = world.getHealth();
+			world.step();
+			
+			double expected = recount(world) * world.getTimestep() / World.DEFAULT_TIMESTEP;
+			assertEquals(expected, health - world.getHealth(), 1e-6, "step " + step);
+			
+			if (step % 10 == 0)
+				world.click(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+		}
+	}
+	
+	/**
+	 * Sums the damage done by every ship, as GamePanel.tick used to do
+	 * @param world The world
+	 * @return The damage which the ships do every World.DEFAULT_TIMESTEP millis
+	 */
+	private static double recount(World world) {
+		double damage = 0;
+		for (int i = 0; i < world.getNumShips(); i++)
+			damage += Math.pow(2, world.getShip(i).getNumLinks()) * PER_MILI_DAMAGE;
+		return damage;
+	}
+	
+	/**
+	 * Checks that the world's damage rate matches the recounted damage rate.  The recount adds up a rounded 
+	 * damage for each ship, while the world adds up exact powers of two, so they can differ in the last few digits.
+	 * @param world The world
+	 * @param message The message to fail with
+	 */
+	private static void assertRecounted(World world, String message) {
+		double expected = recount(world);
+		assertEquals(expected, world.getDamageRate(), 1e-9 * Math.max(1, expected), message);
+	}
+	
+}
@@ -0,0 +1,62 @@
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.awt.Color;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that creating and animating effects doesn't allocate any memory once the EffectManager's pools are full,
+ * by counting the bytes which the test's thread allocates
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class EffectAllocationTest {
+	
+	// The number of effects created in each step, and the number of steps to warm up and to measure
+	private static final int EFFECTS_PER_STEP = 8;
+	private static final int WARMUP_STEPS = 20000;
+	private static final int MEASURED_STEPS = 20000;
+	
+	// The most bytes which can be allocated for each effect created while measuring.
+	// A few allocations by the JVM itself, such as while compiling, can be counted against the thread.
+	private static final double MAX_BYTES_PER_EFFECT = 1;
+	
+	/**
+	 * Creates explosions and points displays every step, as a long game does, and measures the memory allocated
+	 */
+	@Test
+	public void steadyStateEffectsDontAllocate() {
+		assumeTrue(Profiler.getThreadAllocatedBytes() >= 0, "The JVM can't measure allocations");
+		
+		EffectManager effectManager = new EffectManager();
+		
+		// Fill the pools, and give the JIT a chance to compile the effects
+		run(effectManager, WARMUP_STEPS);
+		
+		long before = Profiler.getThreadAllocatedBytes();
+		run(effectManager, MEASURED_STEPS);
+		long allocated = Profiler.getThreadAllocatedBytes() - before;
+		
+		double bytesPerEffect = (double) allocated / (MEASURED_STEPS * EFFECTS_PER_STEP);
+		assertTrue(bytesPerEffect < MAX_BYTES_PER_EFFECT, 
+				allocated + " bytes were allocated, " + bytesPerEffect + " bytes per effect");
+	}
+	
+	/**
+	 * Creates effects and animates them
+	 * @param effectManager The EffectManager
+	 * @param steps The number of steps to animate the effects for
+	 */
+	private static void run(EffectManager effectManager, int steps) {
+		for (int step = 0; step < steps; step++) {
+			for (int i = 0; i < EFFECTS_PER_STEP; i += 2) {
+				effectManager.createExplosion(step % 800, i * 50);
+				effectManager.createPointsDisplay(step % 800, i * 50, 50 * (1 + i), Color.CYAN);
+			}
+			effectManager.tick(World.DEFAULT_TIMESTEP);
+		}
+	}
+	
+}
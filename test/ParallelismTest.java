@@ -0,0 +1,101 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a world plays the same game no matter how many threads it is simulated on
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class ParallelismTest {
+	
+	// The size of the world
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 600;
+	
+	// The number of steps to play, and how often the worlds are compared
+	private static final int STEPS = 3000;
+	private static final int CHECK_EVERY = 250;
+	
+	/**
+	 * Plays the same game on one, two and four threads, changing the number of threads part way through,
+	 * and checks that every world is the same as the one played on one thread
+	 */
+	@Test
+	public void sameGameForAnyParallelism() {
+		World serial = createWorld();
+		World two = createWorld();
+		World four = createWorld();
+		two.setParallelism(2);
+		four.setParallelism(4);
+		
+		Random clicks = new Random(7);
+		for (int i = 0; i < STEPS; i++) {
+			if (i == STEPS / 2) {
+				two.setParallelism(1);
+				serial.setParallelism(3);
+			}
+			
+			serial.step();
+			two.step();
+			four.step();
+			
+			if (i % 20 == 0) {
+				int x = clicks.nextInt(WIDTH);
+				int y = clicks.nextInt(HEIGHT);
+				serial.click(x, y);
+				two.click(x, y);
+				four.click(x, y);
+			}
+			
+			if (i % CHECK_EVERY == 0) {
+				assertSameWorld(serial, two, i);
+				assertSameWorld(serial, four, i);
+			}
+		}
+		
+		assertSameWorld(serial, two, STEPS);
+		assertSameWorld(serial, four, STEPS);
+		
+		serial.setParallelism(1);
+		four.setParallelism(1);
+	}
+	
+	/**
+	 * Creates a world which spawns ships quickly, so that many ships collide in each step
+	 * @return The world
+	 */
+	private static World createWorld() {
+		World world = new World(20, 1e9, 0, WIDTH, HEIGHT, new Random(124));
+		world.setWarnFailedSpawns(false);
+		return world;
+	}
+	
+	/**
+	 * Checks that two worlds hold the same ships, links, life and score, and failed to spawn the same ships
+	 * @param expected The world played on one thread
+	 * @param actual The world played on several threads
+	 * @param step The number of steps played, for the failure message
+	 */
+	private static void assertSameWorld(World expected, World actual, int step) {
+		String message = "after " + step + " steps";
+		assertEquals(expected.getHealth(), actual.getHealth(), message);
+		assertEquals(expected.getScore(), actual.getScore(), message);
+		assertEquals(expected.getNumShips(), actual.getNumShips(), message);
+		assertEquals(expected.getNumLinks(), actual.getNumLinks(), message);
+		assertEquals(expected.getFailedSpawns(), actual.getFailedSpawns(), message);
+		
+		for (int i = 0; i < expected.getNumShips(); i++) {
+			Ship a = expected.getShip(i);
+			Ship b = actual.getShip(i);
+			assertEquals(a.getId(), b.getId(), message);
+			assertEquals(a.getX(), b.getX(), message);
+			assertEquals(a.getY(), b.getY(), message);
+			assertEquals(a.getNumLinks(), b.getNumLinks(), message);
+		}
+	}
+	
+}
@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a recorded game replays the same on any number of threads
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class ReplayTest {
+	
+	// The size of the world
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 600;
+	
+	// The seed of the recorded world
+	private static final long SEED = 124;
+	
+	// The folder which the recordings are saved in
+	@TempDir
+	public Path folder;
+	
+	/**
+	 * Records a game which changes its number of threads, and replays it on the recorded threads and on other numbers
+	 */
+	@Test
+	public void replayMatchesOnAnyNumberOfThreads() throws IOException {
+		Path path = folder.resolve("game.rec");
+		record(path);
+		
+		for (int threads : new int[] {0, 1, 2, 8}) {
+			Replay replay = new Replay(path, threads);
+			assertTrue(replay.run(), "replayed on " + threads + " threads");
+		}
+	}
+	
+	/**
+	 * Records a game with clicks, which is simulated on several threads and then on one
+	 * @param path The file to record to
+	 * @throws IOException If the recording can't be created
+	 */
+	private static void record(Path path) throws IOException {
+		World world = new World(20, 1e9, 0, WIDTH, HEIGHT, new Random(SEED));
+		world.setWarnFailedSpawns(false);
+		world.setParallelism(4);
+		world.startRecording(path, SEED);
+		
+		Random clicks = new Random(7);
+		for (int i = 0; i < 2000; i++) {
+			if (i == 1000)
+				world.setParallelism(1);
+			
+			world.step();
+			if (i % 20 == 0)
+				world.click(clicks.nextInt(WIDTH), clicks.nextInt(HEIGHT));
+		}
+		
+		world.endRecording();
+	}
+	
+}
@@ -0,0 +1,153 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the ShipGrid finds exactly the colliding pairs which testing every pair of ships finds
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class ShipGridTest {
+	
+	// The size of the area which the ships are placed in
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 600;
+	
+	/**
+	 * Compares the pairs found by the grid with every colliding pair, for crowded and sparse stores,
+	 * with ships of every size and some ships outside of the area
+	 */
+	@Test
+	public void findPairsMatchesBruteForce() {
+		for (long seed = 0; seed < 20; seed++) {
+			Random random = new Random(seed);
+			ShipStore store = createStore(random, 50 + random.nextInt(1000));
+			
+			ShipGrid grid = new ShipGrid();
+			grid.rebuild(store, WIDTH, HEIGHT);
+			
+			assertEquals(bruteForcePairs(store), gridPairs(store, grid), "seed " + seed);
+		}
+	}
+	
+	/**
+	 * Compares the ships found by querying the grid around each ship with every ship which it is colliding with
+	 */
+	@Test
+	public void queryFindsEveryCollidingShip() {
+		for (long seed = 0; seed < 20; seed++) {
+			Random random = new Random(seed);
+			ShipStore store = createStore(random, 500);
+			
+			ShipGrid grid = new ShipGrid();
+			grid.rebuild(store, WIDTH, HEIGHT);
+			
+			assertEquals(bruteForcePairs(store), queryPairs(store, grid), "seed " + seed);
+		}
+	}
+	
+	/**
+	 * Moves the ships and updates the grid one ship at a time, as collisions do, 
+	 * and checks that the grid still finds every colliding pair
+	 */
+	@Test
+	public void updatedGridMatchesBruteForce() {
+		Random random = new Random(124);
+		ShipStore store = createStore(random, 800);
+		
+		ShipGrid grid = new ShipGrid();
+		grid.rebuild(store, WIDTH, HEIGHT);
+		
+		for (int step = 0; step < 50; step++) {
+			for (int i = 0; i < store.size(); i++) {
+				store.tick(i, 20 + random.nextInt(200), WIDTH, HEIGHT);
+				grid.update(i);
+			}
+			
+			assertEquals(bruteForcePairs(store), gridPairs(store, grid), "step " + step);
+			assertEquals(bruteForcePairs(store), queryPairs(store, grid), "step " + step);
+		}
+	}
+	
+	/**
+	 * Creates a store of ships at random points, with random numbers of links so that the ships are of every size
+	 * @param random The Random object to place the ships with
+	 * @param numShips The number of ships
+	 * @return The store
+	 */
+	private static ShipStore createStore(Random random, int numShips) {
+		ShipStore store = new ShipStore();
+		for (int i = 0; i < numShips; i++) {
+			// Some ships are placed a little outside of the area
+			int slot = store.add(random.nextInt(WIDTH + 100) - 50, random.nextInt(HEIGHT + 100) - 50, 
+					random.nextInt(4), random.nextInt(2));
+			store.setNumLinks(slot, random.nextInt(ShipStore.MAX_LINKS + 1));
+		}
+		return store;
+	}
+	
+	/**
+	 * Tests every pair of ships, as the game did before it had a grid
+	 * @param store The ships
+	 * @return Every colliding pair, with the lower slot first, in order
+	 */
+	private static List<Long> bruteForcePairs(ShipStore store) {
+		List<Long> pairs = new ArrayList<Long>();
+		for (int i = 0; i < store.size(); i++) {
+			for (int j = i + 1; j < store.size(); j++) {
+				if (store.areColliding(i, j))
+					pairs.add(pack(i, j));
+			}
+		}
+		return pairs;
+	}
+	
+	/**
+	 * @param store The ships
+	 * @param grid The grid which the ships are stored in
+	 * @return The pairs found by searching every row of the grid, in order
+	 */
+	private static List<Long> gridPairs(ShipStore store, ShipGrid grid) {
+		PairBuffer buffer = new PairBuffer();
+		grid.findPairs(0, grid.getRows() - 1, buffer);
+		buffer.sort();
+		
+		List<Long> pairs = new ArrayList<Long>();
+		for (int n = 0; n < buffer.size(); n++)
+			pairs.add(pack(buffer.getFirst(n), buffer.getSecond(n)));
+		return pairs;
+	}
+	
+	/**
+	 * @param store The ships
+	 * @param grid The grid which the ships are stored in
+	 * @return The colliding pairs found by querying the grid around each ship, in order
+	 */
+	private static List<Long> queryPairs(ShipStore store, ShipGrid grid) {
+		List<Long> pairs = new ArrayList<Long>();
+		for (int i = 0; i < store.size(); i++) {
+			int numFound = grid.query(store.getX(i), store.getY(i), i);
+			for (int n = 0; n < numFound; n++) {
+				int j = grid.getFound(n);
+				if (store.areColliding(i, j))
+					pairs.add(pack(i, j));
+			}
+		}
+		return pairs;
+	}
+	
+	/**
+	 * @param first The first slot
+	 * @param second The second slot
+	 * @return The pair packed into a long, which sorts by the first and then the second slot
+	 */
+	private static long pack(int first, int second) {
+		return ((long) first << 32) | second;
+	}
+	
+}
@@ -0,0 +1,132 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that snapshots are exactly as large as they claim to be, and restore a world which continues in the same way
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class SnapshotTest {
+	
+	// The size of the world
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 600;
+	
+	// The folder which the snapshots are saved in
+	@TempDir
+	public Path folder;
+	
+	/**
+	 * Saves worlds with ships, links and effects to files, and checks the length of each file and the loaded world
+	 */
+	@Test
+	public void savedFileRoundTrips() throws IOException {
+		for (int steps : new int[] {0, 100, 1000, 3000}) {
+			World world = createWorld(steps);
+			Path path = folder.resolve("game" + steps + ".snap");
+			
+			// The snapshot must be exactly as long as its size
+			int size = Snapshot.getSize(world);
+			ByteBuffer buffer = ByteBuffer.allocate(size + 16);
+			Snapshot.write(world, buffer);
+			assertEquals(size, buffer.position(), "after " + steps + " steps");
+			
+			// Writing a snapshot reseeds the world, so the world continues in the same way as the last snapshot written
+			Snapshot.save(world, path);
+			assertEquals(size, Files.size(path), "after " + steps + " steps");
+			
+			World loaded = Snapshot.load(path);
+			loaded.setWarnFailedSpawns(false);
+			assertSameWorld(world, loaded);
+			
+			// The restored world continues in the same way as the original
+			for (int i = 0; i < 500; i++) {
+				world.step();
+				loaded.step();
+			}
+			assertSameWorld(world, loaded);
+		}
+	}
+	
+	/**
+	 * Checks that a large arena is still a large arena when it is copied, even once its bounds have changed
+	 */
+	@Test
+	public void largeArenaIsKept() {
+		World world = new World(100, 1e9, 0, GamePanel.ARENA_SIZE, GamePanel.ARENA_SIZE, true, new Random(1));
+		world.setBounds(WIDTH, HEIGHT);
+		assertTrue(Snapshot.copy(world).isLargeArena());
+	}
+	
+	/**
+	 * Checks that a file with bytes after the snapshot is not loaded
+	 */
+	@Test
+	public void trailingBytesAreRejected() throws IOException {
+		World world = createWorld(200);
+		final Path path = folder.resolve("padded.snap");
+		Snapshot.save(world, path);
+		
+		Files.write(path, new byte[8], StandardOpenOption.APPEND);
+		assertThrows(IOException.class, new Executable() {
+			@Override
+			public void execute() throws IOException {
+				Snapshot.load(path);
+			}
+		});
+	}
+	
+	/**
+	 * Creates a world which has been played for a while, with links and effects
+	 * @param steps The number of steps to play
+	 * @return The world
+	 */
+	private static World createWorld(int steps) {
+		World world = new World(100, 1e9, 0, WIDTH, HEIGHT, new Random(steps));
+		world.setWarnFailedSpawns(false);
+		Random random = new Random(steps + 1);
+		for (int i = 0; i < steps; i++) {
+			world.step();
+			if (i % 20 == 0)
+				world.click(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+		}
+		return world;
+	}
+	
+	/**
+	 * Checks that two worlds hold the same ships, links, life and score
+	 * @param expected The original world
+	 * @param actual The restored world
+	 */
+	private static void assertSameWorld(World expected, World actual) {
+		assertEquals(expected.isLargeArena(), actual.isLargeArena());
+		assertEquals(expected.getHealth(), actual.getHealth());
+		assertEquals(expected.getScore(), actual.getScore());
+		assertEquals(expected.getNumShips(), actual.getNumShips());
+		assertEquals(expected.getNumLinks(), actual.getNumLinks());
+		assertEquals(expected.getEffectManager().getNumEffects(), actual.getEffectManager().getNumEffects());
+		
+		for (int i = 0; i < expected.getNumShips(); i++) {
+			Ship a = expected.getShip(i);
+			Ship b = actual.getShip(i);
+			assertEquals(a.getId(), b.getId());
+			assertEquals(a.getX(), b.getX());
+			assertEquals(a.getY(), b.getY());
+			assertEquals(a.getNumLinks(), b.getNumLinks());
+		}
+	}
+	
+}
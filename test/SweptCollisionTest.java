@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that swept collisions find the collisions which happen during long steps, including after bouncing off walls,
+ * and that ships never leave the world
+ * 
+ * @author Michael Layzell
+ * Made for CISC 124, Winter 2013
+ */
+public class SweptCollisionTest {
+	
+	// The size of the world
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 600;
+	
+	/**
+	 * A ship which turns around at a wall part way through a step collides with the ship following it
+	 */
+	@Test
+	public void shipTurnedByWallHitsShipBehindIt() {
+		World world = new World(Double.MAX_VALUE, 1e9, 0, 4000, 4000, new Random(1));
+		world.setTimestep(2000);
+		world.setSweptCollisions(true);
+		
+		// Both ships move left at the same speed, so they only meet after the first one bounces off the wall
+		world.createShip(100, 1000, Ship.DIR_LEFT, Ship.TYPE_FAST);
+		world.createShip(250, 1000, Ship.DIR_LEFT, Ship.TYPE_FAST);
+		world.step();
+		
+		assertEquals(1, world.getNumLinks());
+	}
+	
+	/**
+	 * Ships stay inside the world with swept collisions, however long the steps are
+	 */
+	@Test
+	public void shipsStayInsideWorld() {
+		for (long timestep : new long[] {20, 1000}) {
+			World world = createWorld(timestep, true);
+			for (int i = 0; i < 60000 / timestep; i++) {
+				world.step();
+				
+				for (int n = 0; n < world.getNumShips(); n++) {
+					Ship ship = world.getShip(n);
+					String message = "timestep " + timestep + ", step " + i;
+					assertTrue(ship.getX() >= 0 && ship.getX() <= WIDTH, message);
+					assertTrue(ship.getY() >= 0 && ship.getY() <= HEIGHT, message);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Games played with long swept steps link about as many ships as ones played with short steps.
+	 * A single game can differ by a tenth either way, so several games are added up.
+	 */
+	@Test
+	public void longSweptStepsMatchShortSteps() {
+		double shortLinks = 0;
+		double longLinks = 0;
+		for (long seed = 7; seed < 12; seed++) {
+			World shortSteps = createWorld(seed, World.DEFAULT_TIMESTEP, false);
+			for (int i = 0; i < 60000 / World.DEFAULT_TIMESTEP; i++)
+				shortSteps.step();
+			shortLinks += shortSteps.getNumLinks();
+			
+			World longSteps = createWorld(seed, 1000, true);
+			for (int i = 0; i < 60; i++)
+				longSteps.step();
+			longLinks += longSteps.getNumLinks();
+		}
+		
+		assertEquals(shortLinks, longLinks, 0.2 * shortLinks);
+	}
+	
+	/**
+	 * Creates a world which spawns a ship every 200 millis
+	 * @param timestep The length of each step
+	 * @param swept Whether or not swept collisions are enabled
+	 * @return The world
+	 */
+	private static World createWorld(long timestep, boolean swept) {
+		return createWorld(7, timestep, swept);
+	}
+	
+	/**
+	 * Creates a world which spawns a ship every 200 millis
+	 * @param seed The seed of the world's Random object
+	 * @param timestep The length of each step
+	 * @param swept Whether or not swept collisions are enabled
+	 * @return The world
+	 */
+	private static World createWorld(long seed, long timestep, boolean swept) {
+		World world = new World(200, 1e12, 0, WIDTH, HEIGHT, new Random(seed));
+		world.setWarnFailedSpawns(false);
+		world.setTimestep(timestep);
+		world.setSweptCollisions(swept);
+		return world;
+	}
+	
+}